@@ -4,6 +4,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,23 +24,43 @@ import java.util.logging.Logger;
  * @since 19.04.13
  */
 public class BHMM {
-    private Logger l;
+    protected Logger l;
     private Properties p;
-    private double alpha;
-    private double beta;
+    protected double alpha;
+    protected double beta;
     private int iter;
     private String corpus;
     private String lexicon;
     private String gold;
     private String out;
-    private ArrayList<Integer> words;
-    private ArrayList<Integer> tags;
-    private ArrayList<Integer> gtags;
-    private HashMap<Integer, ArrayList<Integer>> pWords;
+    protected ArrayList<Integer> words;
+    protected ArrayList<Integer> tags;
+    protected HashMap<Integer, ArrayList<Integer>> pWords;
     private HashMap<Integer, ArrayList<Integer>> pTags;
     private int transitions[][];
-    private int emissions[][];
-    private int nTags;
+    protected int emissions[][];
+    private int rows[];
+    protected int sums[];
+    protected int nTags;
+    protected Evaluation ev;
+    private Random r;
+    private int fixed;
+    private double rejuvenation;
+    private ArrayList<Integer> starts;
+    private ArrayList<double[]> scores;
+    private volatile RuntimeException failure;
+
+    /**
+     * Collapsed joint likelihood of a copy of the counts.
+     */
+    protected interface Snapshot {
+        /**
+         * Computes the likelihood of the copy.
+         *
+         * @return Logarithmic likelihood.
+         */
+        double computeLikelihood();
+    }
 
     /**
      * Constructor.
@@ -48,6 +74,9 @@ public class BHMM {
 
         l.log(Level.FINE, "Initializing Parameters");
 
+        String seed = p.getProperty("seed");
+        r = (seed != null) ? new Random(Long.parseLong(seed.trim())) : new Random();
+
         alpha = Double.parseDouble(p.getProperty("alpha"));
         beta = Double.parseDouble(p.getProperty("beta"));
         iter = Integer.parseInt(p.getProperty("iterations"));
@@ -63,149 +92,22 @@ public class BHMM {
     }
 
     /**
-     * Computes likelihood of tag sequence.
-     *
-     * @return Logarithmic likelihood.
-     */
-    private double computeLikelihood() {
-        double p = 0.0;
-
-        for (int i = 1; i < tags.size(); i++) {
-            int cTag = tags.get(i);
-            int pTag = tags.get(i - 1);
-            int w = (cTag != 0) ? pWords.get(cTag).size() : 1;
-            double q = 1.0;
-
-            q *= (emissions[cTag][words.get(i)] + beta) /
-                    (computeSum(emissions, cTag) + beta * w);
-
-            q *= (transitions[pTag][cTag] + alpha) /
-                    (computeSum(transitions, pTag) + alpha * nTags);
-
-            p += Math.log(q);
-        }
-        return p;
-    }
-
-    /**
-     * Computes accuracy of tag-ambiguous words.
-     *
-     * @return Accuracy.
-     */
-    private double computeAccuracy() {
-        int correct = 0;
-        int total = 0;
-
-        for (int i = 0; i < tags.size(); i++) {
-            if (tags.get(i) != 0) {
-                if (pTags.get(words.get(i)).size() > 1) {
-                    if (tags.get(i).equals(gtags.get(i))) {
-                        correct++;
-                    }
-                    total++;
-                }
-            }
-        }
-        return (total != 0) ? (100 * correct / total) : Double.NaN;
-    }
-
-    /**
-     * Computes the marginal counts of a cross tab.
+     * Creates the sampler of the model given by the config.
      *
-     * @param cross Cross tab.
-     * @return Marginal counts of column/row.
-     */
-    private ArrayList<int[]> computeMarginal(int cross[][]) {
-        ArrayList<int[]> m = new ArrayList<int[]>();
-        int X[] = new int[nTags];
-        int Y[] = new int[nTags];
-
-        for (int i = 1; i < nTags; i++) {
-            for (int j = 1; j < cross[i].length; j++) {
-                X[j] += cross[i][j];
-                Y[i] += cross[i][j];
-            }
-        }
-        m.add(X);
-        m.add(Y);
-
-        return m;
-    }
-
-    /**
-     * Computes Entropy between clusters.
-     *
-     * @param mCounts Sequences of marginal counts
-     * @param nTokens Number of tokens.
-     * @return Entropy metric.
-     */
-    private double computeEntropy(ArrayList<int[]> mCounts, double nTokens) {
-        double h = 0.0;
-
-        for (int[] marginal : mCounts) {
-            double hh = 0.0;
-
-            for (int count : marginal) {
-                if (count != 0) {
-                    double rCount = count / nTokens;
-
-                    hh -= rCount * Math.log(rCount) / Math.log(2);
-                }
-            }
-            h += hh;
-        }
-        return h;
-    }
-
-    /**
-     * Computes Mutual Information between two clusters.
-     *
-     * @param cross   Cross tab.
-     * @param m       Marginal counts.
-     * @param nTokens Number of tokens.
-     * @return Mutual Information metric.
+     * @param l Log.
+     * @param p Config.
+     * @return BHMM if <code>model</code> is bhmm1 or not set, {@link BHMM2} if it's bhmm2.
+     * @throws IllegalArgumentException If <code>model</code> is anything else.
      */
-    private double computeMI(int cross[][], ArrayList<int[]> m, double nTokens) {
-        double mi = 0.0;
-
-        for (int i = 0; i < nTags; i++) {
-            for (int j = 0; j < nTags; j++) {
-                double n = cross[i][j] / nTokens;
-                double xRel = m.get(0)[j] / nTokens;
-                double yRel = m.get(1)[i] / nTokens;
+    public static BHMM create(Logger l, Properties p) {
+        String model = p.getProperty("model", "bhmm1").trim();
 
-                if (n != 0 && xRel != 0 && yRel != 0) {
-                    mi += n * Math.log(n / (xRel * yRel)) / Math.log(2);
-                }
-            }
-        }
-        return mi;
-    }
-
-    /**
-     * Computes Variation of Information based on Meila 2003/07.
-     *
-     * @return VI metric.
-     */
-    private double computeVI() {
-        ArrayList<int[]> m;
-        double h;
-        double mi;
-        int cross[][] = new int[nTags][nTags];
-        double nTokens = 0.0;
-
-        for (int i = 0; i < tags.size(); i++) {
-            cross[gtags.get(i)][tags.get(i)] += 1;
-
-            if (tags.get(i) != 0) {
-                nTokens++;
-            }
+        if (model.equals("bhmm1")) {
+            return new BHMM(l, p);
+        } else if (model.equals("bhmm2")) {
+            return new BHMM2(l, p);
         }
-        m = computeMarginal(cross);
-        h = computeEntropy(m, nTokens);
-        mi = computeMI(cross, m, nTokens);
-
-        return h - 2 * mi;
+        throw new IllegalArgumentException(String.format("Unknown model %s, use bhmm1 or bhmm2", model));
     }
 
     /**
@@ -216,36 +118,42 @@ public class BHMM {
      * @param i Position in sequence.
      * @param n Change in count.
      */
-    private void changeCount(int i, int n) {
+    protected void changeCount(int i, int n) {
         transitions[tags.get(i - 1)][tags.get(i)] += n;
         transitions[tags.get(i)][tags.get(i + 1)] += n;
         emissions[tags.get(i)][words.get(i)] += n;
+        rows[tags.get(i - 1)] += n;
+        rows[tags.get(i)] += n;
+        sums[tags.get(i)] += n;
     }
 
     /**
      * Computes the conditional distribution of a tag.
+     * <p/>
+     * The indicators correct the counts of the second transition if it's the same as the first one, so the result is
+     * proportional to the collapsed joint likelihood and tempering can compare the two.
      *
      * @param i    Position in sequence.
      * @param cTag Current tag.
      * @param temp Temperature.
      * @return Probability of <code>cTag</code> in position <code>i</code>.
      */
-    private double computeProbability(int i, int cTag, double temp) {
+    protected double computeProbability(int i, int cTag, double temp) {
         int pTag = tags.get(i - 1);
         int fTag = tags.get(i + 1);
-        int I1 = (cTag == fTag) ? 1 : 0;
+        int I1 = (pTag == cTag && cTag == fTag) ? 1 : 0;
         int I2 = (pTag == cTag) ? 1 : 0;
 
         double p = 1.0;
 
         p *= (emissions[cTag][words.get(i)] + beta) /
-                (computeSum(emissions, cTag) + beta * pWords.get(cTag).size());
+                (sums[cTag] + beta * pWords.get(cTag).size());
 
         p *= (transitions[pTag][cTag] + alpha) /
-                (computeSum(transitions, pTag) + alpha * nTags);
+                (rows[pTag] + alpha * nTags);
 
         p *= (transitions[cTag][fTag] + I1 + alpha) /
-                (computeSum(transitions, cTag) + I2 + alpha * nTags);
+                (rows[cTag] + I2 + alpha * nTags);
 
         return Math.pow(p, 1 / temp);
     }
@@ -281,7 +189,7 @@ public class BHMM {
         for (int i = 1; i < probs.length; i++) {
             probs[i] += probs[i - 1];
         }
-        double weight = Math.random() * probs[probs.length - 1];
+        double weight = r.nextDouble() * probs[probs.length - 1];
 
         for (int i = 0; i < probs.length; i++) {
             if (weight < probs[i]) {
@@ -292,92 +200,205 @@ public class BHMM {
         return tag;
     }
 
+    /**
+     * Samples the tags of a part of the sequence.
+     *
+     * @param from First position.
+     * @param to   Position after the last one.
+     * @param temp Temperature.
+     */
+    private void sampleRange(int from, int to, double temp) {
+        for (int i = from; i < to; i++) {
+            int wordID = words.get(i);
+
+            if (wordID != 0) {
+                ArrayList<Integer> possibilities = pTags.get(wordID);
+
+                if (possibilities.size() > 1) {
+                    changeCount(i, -1);
+
+                    double probs[] = new double[possibilities.size()];
+
+                    for (int j = 0; j < possibilities.size(); j++) {
+                        probs[j] = computeProbability(i, possibilities.get(j), temp);
+                    }
+                    int tag = possibilities.get(sampleTag(probs));
+                    tags.set(i, tag);
+                    changeCount(i, 1);
+                }
+            }
+        }
+    }
+
     /**
      * Gibbs sampling.
+     * <p/>
+     * Every iteration samples the positions from <code>fixed</code> on and a fraction of the sentences before.
      */
     private void sample() {
         int dec = Integer.parseInt(p.getProperty("decrease"));
         double rate = Double.parseDouble(p.getProperty("rate"));
         double temp = Double.parseDouble(p.getProperty("max"));
         double min = Double.parseDouble(p.getProperty("min"));
+        int queue = Integer.parseInt(p.getProperty("queue", "1"));
+        boolean record = Boolean.parseBoolean(p.getProperty("record", "false"));
+        long begin = System.nanoTime();
         int dbg;
 
+        if (queue < 1) {
+            throw new IllegalArgumentException(String.format("queue must be at least 1, was %d", queue));
+        }
+        RejectedExecutionHandler full = record ? new RejectedExecutionHandler() {
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                try {
+                    executor.getQueue().put(task);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } : new ThreadPoolExecutor.DiscardOldestPolicy();
+        ExecutorService ex = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queue), full);
+
         l.log(Level.FINER, String.format("Decrease: %d\tRate: %f\tTemperature: %f\tMinimum: %f", dec, rate, temp, min));
 
         if ((dbg = Integer.parseInt(p.getProperty("dbg"))) != 0) {
             l.log(Level.FINEST, String.format("Format:\nIteration\tAccuracy\tLikelihood\tVI\tTemperature"));
         }
-        for (int itr = 0; itr < iter; itr++) {
-            for (int i = 0; i < tags.size(); i++) {
-                int wordID = words.get(i);
+        scores = new ArrayList<double[]>();
+        failure = null;
 
-                if (wordID != 0) {
-                    ArrayList<Integer> possibilities = pTags.get(wordID);
+        try {
+            for (int itr = 0; itr < iter; itr++) {
+                sampleRange(fixed, tags.size(), temp);
 
-                    if (possibilities.size() > 1) {
-                        changeCount(i, -1);
+                for (int k = 0; k < starts.size() * rejuvenation; k++) {
+                    int start = starts.get(r.nextInt(starts.size()));
+                    int end = start;
 
-                        double probs[] = new double[possibilities.size()];
-
-                        for (int j = 0; j < possibilities.size(); j++) {
-                            probs[j] = computeProbability(i, possibilities.get(j), temp);
-                        }
-                        int tag = possibilities.get(sampleTag(probs));
-                        tags.set(i, tag);
-                        changeCount(i, 1);
+                    while (words.get(end) != 0) {
+                        end++;
                     }
+                    sampleRange(start, end, temp);
+                }
+                double newTemp = temp * rate;
+
+                if (itr % dec == 0 && newTemp >= min) {
+                    temp = newTemp;
+                }
+                if ((dbg != 0 && itr % dbg == 0 || itr == iter - 1) && (record || l.isLoggable(Level.FINEST))) {
+                    evaluate(itr, (System.nanoTime() - begin) / 1e6, temp, ex);
                 }
             }
-            double newTemp = temp * rate;
+        } finally {
+            ex.shutdown();
 
-            if (itr % dec == 0 && newTemp >= min) {
-                temp = newTemp;
+            try {
+                ex.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
             }
-            if (dbg != 0 && itr % dbg == 0 || itr == iter - 1) {
-                l.log(Level.FINEST, String.format("\n#%d\t%f\t%f\t%f\t%f",
-                        itr + 1, computeAccuracy(), computeLikelihood(), computeVI(), temp));
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Evaluation failed", failure);
+        }
+    }
+
+    /**
+     * Evaluates a snapshot of the current sample in the background.
+     * <p/>
+     * The tag sequence and the count matrices are copied, so sampling continues immediately. The executor works
+     * through the snapshots in iteration order and drops the oldest pending one if it can't keep up, unless
+     * <code>record</code> is set, then sampling waits for a free place in the queue so that no evaluation is lost. A
+     * failed evaluation is logged and fails the sampling run once it's finished.
+     *
+     * @param itr  Iteration.
+     * @param time Milliseconds since the start of sampling.
+     * @param temp Temperature.
+     * @param ex   Single-threaded executor with a bounded queue.
+     */
+    private void evaluate(final int itr, final double time, final double temp, ExecutorService ex) {
+        final ArrayList<Integer> sTags = new ArrayList<Integer>(tags);
+        final Snapshot snapshot = snapshotLikelihood();
+
+        ex.execute(new Runnable() {
+            public void run() {
+                try {
+                    double score[] = {itr + 1, time,
+                            ev.computeAccuracy(sTags),
+                            snapshot.computeLikelihood(),
+                            ev.computeVI(sTags),
+                            temp};
+
+                    scores.add(score);
+                    l.log(Level.FINEST, String.format("\n#%d\t%f\t%f\t%f\t%f",
+                            itr + 1, score[2], score[3], score[4], temp));
+                } catch (RuntimeException re) {
+                    l.log(Level.SEVERE, String.format("Evaluation of iteration %d failed", itr + 1), re);
+                    failure = re;
+                }
             }
+        });
+    }
+
+    /**
+     * Copies the counts of the current sample for computing its likelihood in the background.
+     *
+     * @return Collapsed joint likelihood of the copy.
+     */
+    protected Snapshot snapshotLikelihood() {
+        final int sTransitions[][] = copy(transitions);
+        final int sEmissions[][] = copy(emissions);
+
+        return new Snapshot() {
+            public double computeLikelihood() {
+                return ev.computeLikelihood(sTransitions, sEmissions);
+            }
+        };
+    }
+
+    /**
+     * Copies a count matrix.
+     *
+     * @param matrix Either emission or transition matrix.
+     * @return Deep copy of <code>matrix</code>.
+     */
+    protected int[][] copy(int matrix[][]) {
+        int c[][] = new int[matrix.length][];
+
+        for (int i = 0; i < matrix.length; i++) {
+            c[i] = matrix[i].clone();
         }
+        return c;
     }
 
     /**
-     * Coordinates method calls.
+     * Initializes the sample for a corpus and runs the sampler.
      * <p/>
-     * Also spams logging messages.
+     * The corpus is only read, so several instances can be trained on the same corpus concurrently.
+     *
+     * @param c Corpus.
      */
-    public void run() {
-        l.log(Level.FINE, "Initializing structures");
+    public void train(Corpus c) {
+        initialize(c);
 
-        IO io = new IO(corpus, lexicon, gold, out);
+        l.log(Level.FINE, "Starting Gibbs sampling with annealing");
+        sample();
+    }
+
+    /**
+     * Initializes the tag sequence and the count matrices for a corpus.
+     *
+     * @param c Corpus.
+     */
+    public void initialize(Corpus c) {
         HMM hmm = new HMM();
-        tags = new ArrayList<Integer>();
-        ID wid = new ID();
-        ID tid = new ID();
-        pWords = new HashMap<Integer, ArrayList<Integer>>();
-        pTags = new HashMap<Integer, ArrayList<Integer>>();
-
-        l.log(Level.FINE, String.format("Reading lexicon from %s", lexicon));
-        words = io.readCorpus(wid);
-        l.log(Level.FINER, String.format("Word IDs: %s", wid.getHashDI()));
-        l.log(Level.FINER, String.format("Words: %s", words));
-
-        l.log(Level.FINE, String.format("Reading lexicon from %s", lexicon));
-        io.readLexicon(wid, tid, pTags, pWords);
-        l.log(Level.FINER, String.format("Tag IDs: %s", tid.getHashDI()));
-        l.log(Level.FINER, String.format("Possible words for tags: %s", pWords));
-        l.log(Level.FINER, String.format("Possible tags for word: %s", pTags));
-
-        nTags = pWords.size() + 1;
-        int nWords = pTags.size() + 1;
-        l.log(Level.FINER, String.format("N(words): %d", nWords - 1));
-        l.log(Level.FINER, String.format("N(tags): %d", nTags - 1));
-
-        l.log(Level.FINE, String.format("Reading gold standard from %s", gold));
-        gtags = io.readGold(tid);
-        l.log(Level.FINER, String.format("Gold tags: %s", gtags));
+        setCorpus(c);
+        fixed = 0;
+        starts = new ArrayList<Integer>();
 
         l.log(Level.FINE, "Initializing tag sequence");
-        tags = hmm.initializeTags(words, pTags);
+        tags = hmm.initializeTags(words, pTags, r);
         l.log(Level.FINER, String.format("Tags: %s", tags));
 
         l.log(Level.FINE, "Initializing transition matrix");
@@ -385,11 +406,198 @@ public class BHMM {
         l.log(Level.FINER, String.format("Transitions: %s", Arrays.deepToString(transitions)));
 
         l.log(Level.FINE, "Initializing emission matrix");
-        emissions = hmm.initializeEmissions(nTags, nWords, tags, words);
+        emissions = hmm.initializeEmissions(nTags, c.getNWords(), tags, words);
         l.log(Level.FINER, String.format("Emissions: %s", Arrays.deepToString(emissions)));
 
+        initializeCounts();
+    }
+
+    /**
+     * Initializes further counts of the model from the tag sequence.
+     * <p/>
+     * Called after the tag sequence and the count matrices are set. The bigram model keeps the totals of the rows of
+     * both matrices, so the conditional distribution doesn't sum over a row for every candidate tag.
+     */
+    protected void initializeCounts() {
+        rows = new int[nTags];
+        sums = new int[nTags];
+
+        for (int i = 0; i < nTags; i++) {
+            rows[i] = computeSum(transitions, i);
+            sums[i] = computeSum(emissions, i);
+        }
+    }
+
+    /**
+     * Samples every position once at a fixed temperature.
+     *
+     * @param temp Temperature.
+     */
+    public void sweep(double temp) {
+        sampleRange(0, tags.size(), temp);
+    }
+
+    /**
+     * Computes the collapsed joint likelihood of the current sample.
+     *
+     * @return Logarithmic likelihood.
+     */
+    public double computeLikelihood() {
+        return ev.computeLikelihood(transitions, emissions);
+    }
+
+    /**
+     * Computes the accuracy of the current sample on tag-ambiguous words.
+     *
+     * @return Accuracy.
+     */
+    public double computeAccuracy() {
+        return ev.computeAccuracy(tags);
+    }
+
+    /**
+     * Computes the Variation of Information of the current sample.
+     *
+     * @return VI metric.
+     */
+    public double computeVI() {
+        return ev.computeVI(tags);
+    }
+
+    /**
+     * Continues sampling from a saved state on a corpus which extends the corpus of the state.
+     * <p/>
+     * The new words get tags drawn from the current model. Sampling covers the new sentences and in each iteration a
+     * random fraction <code>rejuvenation</code> of the old sentences.
+     *
+     * @param c Corpus, see {@link Corpus#Corpus(Logger, Properties, State)}.
+     * @param s Sampler state.
+     */
+    public void train(Corpus c, State s) {
+        HMM hmm = new HMM();
+        setCorpus(c);
+        rejuvenation = Double.parseDouble(p.getProperty("rejuvenation", "0.0"));
+        tags = new ArrayList<Integer>(s.getTags());
+        fixed = tags.size();
+        starts = new ArrayList<Integer>();
+
+        for (int i = 1; i < fixed; i++) {
+            if (words.get(i - 1) == 0 && words.get(i) != 0) {
+                starts.add(i);
+            }
+        }
+        l.log(Level.FINER, String.format("Old tokens: %d\tNew tokens: %d\tRejuvenation: %f",
+                fixed, words.size() - fixed, rejuvenation));
+
+        transitions = grow(s.getTransitions(), nTags, nTags);
+        emissions = grow(s.getEmissions(), nTags, c.getNWords());
+
+        l.log(Level.FINE, "Extending tag sequence");
+        hmm.extendTags(words, tags, pTags, pWords, transitions, emissions, alpha, beta, r);
+        l.log(Level.FINER, String.format("Tags: %s", tags));
+        initializeCounts();
+
         l.log(Level.FINE, "Starting Gibbs sampling with annealing");
         sample();
-        io.writeSample(words, tags, wid, tid);
+    }
+
+    /**
+     * Sets the structures of a corpus.
+     *
+     * @param c Corpus.
+     */
+    private void setCorpus(Corpus c) {
+        words = c.getWords();
+        pWords = c.getPWords();
+        pTags = c.getPTags();
+        nTags = c.getNTags();
+        ev = new Evaluation(alpha, beta, c);
+    }
+
+    /**
+     * Copies a count matrix into a possibly larger one.
+     *
+     * @param matrix Either emission or transition matrix.
+     * @param rows   Number of rows.
+     * @param cols   Number of columns.
+     * @return Matrix with the counts of <code>matrix</code> and zeros elsewhere.
+     */
+    private int[][] grow(int matrix[][], int rows, int cols) {
+        int g[][] = new int[rows][cols];
+
+        for (int i = 0; i < matrix.length; i++) {
+            System.arraycopy(matrix[i], 0, g[i], 0, matrix[i].length);
+        }
+        return g;
+    }
+
+    public ArrayList<Integer> getTags() {
+        return tags;
+    }
+
+    public int[][] getTransitions() {
+        return transitions;
+    }
+
+    public int[][] getEmissions() {
+        return emissions;
+    }
+
+    /**
+     * Returns the evaluations of the last sampling run.
+     * <p/>
+     * Each score is iteration, milliseconds since the start of sampling, accuracy, likelihood, VI and temperature.
+     *
+     * @return Scores in iteration order.
+     */
+    public ArrayList<double[]> getScores() {
+        return scores;
+    }
+
+    /**
+     * Coordinates method calls.
+     * <p/>
+     * Also spams logging messages.
+     */
+    public void run() {
+        l.log(Level.FINE, "Initializing structures");
+
+        IO io = new IO(corpus, lexicon, gold, out);
+        Corpus c = new Corpus(l, p);
+
+        train(c);
+        save(io, c);
+    }
+
+    /**
+     * Continues sampling from the saved state with the sentences of the update file.
+     */
+    public void update() {
+        l.log(Level.FINE, "Initializing structures");
+
+        IO io = new IO(corpus, lexicon, gold, out);
+
+        l.log(Level.FINE, String.format("Reading state from %s", p.getProperty("state")));
+        State s = io.readState(p.getProperty("state"));
+        Corpus c = new Corpus(l, p, s);
+
+        train(c, s);
+        save(io, c);
+    }
+
+    /**
+     * Writes the sample and, if configured, the sampler state.
+     *
+     * @param io IO.
+     * @param c  Corpus.
+     */
+    public void save(IO io, Corpus c) {
+        io.writeSample(words, tags, c.getWid(), c.getTid());
+
+        if (p.getProperty("state") != null) {
+            l.log(Level.FINE, String.format("Writing state to %s", p.getProperty("state")));
+            io.writeState(p.getProperty("state"),
+                    new State(c.getWid(), c.getTid(), words, c.getGtags(), tags, transitions, emissions));
+        }
     }
 }
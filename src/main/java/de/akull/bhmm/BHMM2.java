@@ -0,0 +1,158 @@
+package de.akull.bhmm;
+
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of BHMM2 of Goldwater & Griffiths 2007.
+ * <p/>
+ * Trigram Bayesian Hidden Markov Model, the transition to a tag depends on the two previous tags. Positions before the
+ * start of the corpus count as boundary. Trigram counts are kept in {@link Trigrams}, the counts of each pair of tags
+ * as context and the emission totals of {@link BHMM} are updated with every change, so sampling a position only
+ * touches the three trigrams containing it.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class BHMM2 extends BHMM {
+    private Trigrams trigrams;
+    private int contexts[][];
+
+    /**
+     * Constructor.
+     *
+     * @param l Log.
+     * @param p Config.
+     */
+    public BHMM2(Logger l, Properties p) {
+        super(l, p);
+    }
+
+    /**
+     * Returns the tag at a position.
+     *
+     * @param i Position in sequence.
+     * @return Tag ID or 0 outside of the sequence.
+     */
+    private int tagAt(int i) {
+        return (i < 0 || i >= tags.size()) ? 0 : tags.get(i);
+    }
+
+    /**
+     * Changes the count of the trigram ending in a position.
+     *
+     * @param j Position in sequence.
+     * @param n Change in count.
+     */
+    private void changeTrigram(int j, int n) {
+        if (j < tags.size()) {
+            int a = tagAt(j - 2);
+            int b = tagAt(j - 1);
+
+            trigrams.add(trigrams.index(a, b, tags.get(j)), n);
+            contexts[a][b] += n;
+        }
+    }
+
+    /**
+     * Initializes the trigram and context counts from the tag sequence.
+     */
+    protected void initializeCounts() {
+        super.initializeCounts();
+        trigrams = new Trigrams(nTags);
+        contexts = new int[nTags][nTags];
+
+        l.log(Level.FINE, "Initializing trigram counts");
+
+        for (int j = 1; j < tags.size(); j++) {
+            changeTrigram(j, 1);
+        }
+    }
+
+    /**
+     * Changes the count of a sample.
+     * <p/>
+     * Besides the bigram counts these are the three trigrams containing the position.
+     *
+     * @param i Position in sequence.
+     * @param n Change in count.
+     */
+    protected void changeCount(int i, int n) {
+        super.changeCount(i, n);
+
+        for (int j = i; j <= i + 2; j++) {
+            changeTrigram(j, n);
+        }
+    }
+
+    /**
+     * Computes the conditional distribution of a tag.
+     * <p/>
+     * The indicators correct the counts of the trigrams which contain the position more than once.
+     *
+     * @param i    Position in sequence.
+     * @param cTag Current tag.
+     * @param temp Temperature.
+     * @return Probability of <code>cTag</code> in position <code>i</code>.
+     */
+    protected double computeProbability(int i, int cTag, double temp) {
+        int a = tagAt(i - 2);
+        int b = tagAt(i - 1);
+        int c = tagAt(i + 1);
+        int d = tagAt(i + 2);
+        int g1 = trigrams.index(a, b, cTag);
+        int g2 = trigrams.index(b, cTag, c);
+        int g3 = trigrams.index(cTag, c, d);
+        int I12 = (g1 == g2) ? 1 : 0;
+        int I13 = (g1 == g3) ? 1 : 0;
+        int I23 = (g2 == g3) ? 1 : 0;
+        int J12 = (a == b && b == cTag) ? 1 : 0;
+        int J13 = (a == cTag && b == c) ? 1 : 0;
+        int J23 = (b == cTag && cTag == c) ? 1 : 0;
+
+        double p = 1.0;
+
+        p *= (emissions[cTag][words.get(i)] + beta) /
+                (sums[cTag] + beta * pWords.get(cTag).size());
+
+        p *= (trigrams.get(g1) + alpha) /
+                (contexts[a][b] + alpha * nTags);
+
+        p *= (trigrams.get(g2) + I12 + alpha) /
+                (contexts[b][cTag] + J12 + alpha * nTags);
+
+        if (i + 2 < tags.size()) {
+            p *= (trigrams.get(g3) + I13 + I23 + alpha) /
+                    (contexts[cTag][c] + J13 + J23 + alpha * nTags);
+        }
+        return Math.pow(p, 1 / temp);
+    }
+
+    /**
+     * Copies the counts of the current sample for computing its likelihood in the background.
+     *
+     * @return Collapsed joint likelihood of the copy.
+     */
+    protected Snapshot snapshotLikelihood() {
+        final int sTrigrams[] = trigrams.getCounts().clone();
+        final int sContexts[][] = copy(contexts);
+        final int sEmissions[][] = copy(emissions);
+
+        return new Snapshot() {
+            public double computeLikelihood() {
+                return ev.computeLikelihood(sTrigrams, sContexts, sEmissions);
+            }
+        };
+    }
+
+    /**
+     * Computes the collapsed joint likelihood of the current sample.
+     *
+     * @return Logarithmic likelihood.
+     */
+    public double computeLikelihood() {
+        return ev.computeLikelihood(trigrams.getCounts(), contexts, emissions);
+    }
+}
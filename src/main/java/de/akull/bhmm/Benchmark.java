@@ -0,0 +1,215 @@
+package de.akull.bhmm;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * End-to-end time-to-quality benchmark.
+ * <p/>
+ * Samples generated corpora of increasing size and records wall-clock time, peak heap, GC time and the evaluations at
+ * the <code>dbg</code> interval for each model. Writes the time-to-accuracy curves as a table and a JSON report of all
+ * runs.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Benchmark {
+    private Logger l;
+    private Properties p;
+    private long sizes[];
+    private String models[];
+    private String dir;
+    private String report;
+    private String curves;
+    private String iterations;
+    private volatile long peak;
+    private Generator g;
+
+    /**
+     * Constructor.
+     *
+     * @param l Log.
+     * @param p Config.
+     */
+    public Benchmark(Logger l, Properties p) {
+        this.l = l;
+        this.p = p;
+
+        String s[] = p.getProperty("benchmark.sizes", "100000, 1000000, 10000000, 100000000").split(",");
+        sizes = new long[s.length];
+
+        for (int i = 0; i < s.length; i++) {
+            sizes[i] = Long.parseLong(s[i].trim());
+        }
+        models = p.getProperty("benchmark.models", "bhmm1, bhmm2").split(",");
+
+        for (int i = 0; i < models.length; i++) {
+            models[i] = models[i].trim();
+        }
+        dir = p.getProperty("benchmark.dir", "benchmark");
+        report = p.getProperty("benchmark.report", "benchmark.json");
+        curves = p.getProperty("benchmark.curves", "curves.txt");
+        iterations = p.getProperty("benchmark.iterations", "100").trim();
+
+        long seed = Long.parseLong(p.getProperty("seed", "1"));
+        int nTags = Integer.parseInt(p.getProperty("benchmark.tags", "20"));
+        int nWords = Integer.parseInt(p.getProperty("benchmark.words", "10000"));
+        double ambiguity = Double.parseDouble(p.getProperty("benchmark.ambiguity", "0.3"));
+        g = new Generator(seed, nTags, nWords, ambiguity);
+
+        l.log(Level.FINER, String.format("Sizes: %s\tModels: %s\tIterations: %s\tSeed: %d\tTags: %d\tWords: %d\t"
+                        + "Ambiguity: %f", p.getProperty("benchmark.sizes"), p.getProperty("benchmark.models"),
+                iterations, seed, nTags, nWords, ambiguity));
+    }
+
+    /**
+     * Starts polling the total heap usage.
+     * <p/>
+     * The peak usages of the single pools are reached at different times, their sum overstates the peak. Instead the
+     * used heap is polled every 10 milliseconds and the maximum is kept in <code>peak</code>.
+     *
+     * @return Executor of the polling, which has to be shut down.
+     */
+    private ScheduledExecutorService pollHeap() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ScheduledExecutorService ex = Executors.newSingleThreadScheduledExecutor();
+        peak = memory.getHeapMemoryUsage().getUsed();
+
+        ex.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        return ex;
+    }
+
+    /**
+     * Sums the collection time of all garbage collectors.
+     *
+     * @return GC time in milliseconds.
+     */
+    private long gcTime() {
+        long time = 0;
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    /**
+     * Formats a number for JSON.
+     *
+     * @param d Number.
+     * @return Number or null if it's not finite.
+     */
+    private String json(double d) {
+        return (Double.isNaN(d) || Double.isInfinite(d)) ? "null" : String.format(Locale.ROOT, "%.6f", d);
+    }
+
+    /**
+     * Samples a generated corpus with a model.
+     * <p/>
+     * Throughput is the number of sampled tokens per second.
+     *
+     * @param nTokens Number of tokens.
+     * @param path    Directory of the generated corpus.
+     * @param model   Model, see {@link BHMM#create(Logger, Properties)}.
+     * @param rows    Curve rows, which are extended.
+     * @return JSON object of the run.
+     */
+    private String measure(long nTokens, String path, String model, ArrayList<String> rows) {
+        Properties np = new Properties(p);
+
+        np.setProperty("model", model);
+        np.setProperty("corpus", new File(path, "corpus.txt").getPath());
+        np.setProperty("lexicon", new File(path, "lexicon.txt").getPath());
+        np.setProperty("gold", new File(path, "gold.txt").getPath());
+        np.setProperty("record", "true");
+        np.setProperty("iterations", iterations);
+
+        System.gc();
+
+        long gc = gcTime();
+        long start = System.nanoTime();
+        long load;
+        long end;
+        BHMM bhmm;
+        ScheduledExecutorService poll = pollHeap();
+
+        try {
+            Corpus c = new Corpus(l, np);
+            load = System.nanoTime();
+
+            bhmm = BHMM.create(l, np);
+            bhmm.train(c);
+            end = System.nanoTime();
+        } finally {
+            poll.shutdownNow();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "{\"tokens\": %d, \"model\": \"%s\", \"loadTime\": %s, "
+                        + "\"sampleTime\": %s, \"throughput\": %s, \"peakHeap\": %d, \"gcTime\": %d, \"curve\": [",
+                nTokens, model, json((load - start) / 1e6), json((end - load) / 1e6),
+                json(nTokens * Double.parseDouble(np.getProperty("iterations")) / ((end - load) / 1e9)),
+                peak, gcTime() - gc));
+
+        ArrayList<double[]> scores = bhmm.getScores();
+
+        for (int i = 0; i < scores.size(); i++) {
+            double score[] = scores.get(i);
+
+            sb.append(String.format("%s{\"iteration\": %d, \"time\": %s, \"accuracy\": %s, \"likelihood\": %s, "
+                            + "\"vi\": %s}", (i == 0) ? "" : ", ", (int) score[0],
+                    json(score[1]), json(score[2]), json(score[3]), json(score[4])));
+            rows.add(String.format(Locale.ROOT, "%d\t%s\t%d\t%.3f\t%f\t%f\t%f",
+                    nTokens, model, (int) score[0], score[1], score[2], score[4], score[3]));
+        }
+        sb.append("]}");
+
+        l.log(Level.FINE, String.format("Finished %d tokens with %s in %.3fs", nTokens, model, (end - start) / 1e9));
+        return sb.toString();
+    }
+
+    /**
+     * Coordinates method calls.
+     */
+    public void run() {
+        IO io = new IO(p.getProperty("corpus"), p.getProperty("lexicon"), p.getProperty("gold"), p.getProperty("out"));
+        ArrayList<String> rows = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format(Locale.ROOT, "{\"alpha\": %s, \"beta\": %s, \"iterations\": %s, \"dbg\": %s, "
+                        + "\"processors\": %d, \"maxHeap\": %d, \"runs\": [",
+                p.getProperty("alpha"), p.getProperty("beta"), iterations, p.getProperty("dbg"),
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory()));
+
+        for (int i = 0; i < sizes.length; i++) {
+            String path = new File(dir, String.valueOf(sizes[i])).getPath();
+
+            l.log(Level.FINE, String.format("Generating %d tokens in %s", sizes[i], path));
+            g.generate(path, sizes[i]);
+
+            for (int j = 0; j < models.length; j++) {
+                sb.append((i == 0 && j == 0) ? "" : ", ").append(measure(sizes[i], path, models[j], rows));
+            }
+        }
+        sb.append("]}\n");
+
+        io.writeTable(curves, "Tokens\tModel\tIteration\tTime\tAccuracy\tVI\tLikelihood", rows);
+        io.writeReport(report, sb.toString());
+    }
+}
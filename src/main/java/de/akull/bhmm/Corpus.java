@@ -0,0 +1,142 @@
+package de.akull.bhmm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Corpus, lexicon and gold standard.
+ * <p/>
+ * Read once and never modified afterwards, so it can be shared between several samplers.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Corpus {
+    private final ID wid;
+    private final ID tid;
+    private final ArrayList<Integer> words;
+    private final ArrayList<Integer> gtags;
+    private final HashMap<Integer, ArrayList<Integer>> pWords;
+    private final HashMap<Integer, ArrayList<Integer>> pTags;
+    private final int nTags;
+    private final int nWords;
+
+    /**
+     * Constructor.
+     * <p/>
+     * Reads the files given by the config.
+     *
+     * @param l Log.
+     * @param p Config.
+     */
+    public Corpus(Logger l, Properties p) {
+        this(l, p, p.getProperty("corpus"), p.getProperty("gold"), new ID(), new ID(), new ArrayList<Integer>(),
+                new ArrayList<Integer>());
+    }
+
+    /**
+     * Constructor.
+     * <p/>
+     * Appends the sentences of the update file to the corpus of a saved state and the gold tags of the update gold
+     * standard to its gold tags. Words and tags which are new get the next free IDs, so the IDs of the state stay valid.
+     *
+     * @param l Log.
+     * @param p Config.
+     * @param s Sampler state.
+     */
+    public Corpus(Logger l, Properties p, State s) {
+        this(l, p, p.getProperty("update"), p.getProperty("update.gold"), s.getWid(), s.getTid(), s.getWords(),
+                s.getGtags());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param l       Log.
+     * @param p       Config.
+     * @param corpus  Corpus filename.
+     * @param gold    Gold standard filename, may be null.
+     * @param wid     Mapping String (word) -> Integer (id).
+     * @param tid     Mapping String (tag) -> Integer (id).
+     * @param prefix  Sequence of word IDs which is extended by the corpus, may be empty.
+     * @param gPrefix Sequence of gold tag IDs which is extended by the gold standard, may be empty.
+     */
+    private Corpus(Logger l, Properties p, String corpus, String gold, ID wid, ID tid, ArrayList<Integer> prefix,
+                   ArrayList<Integer> gPrefix) {
+        String lexicon = p.getProperty("lexicon");
+        IO io = new IO(corpus, lexicon, gold, p.getProperty("out"));
+
+        this.wid = wid;
+        this.tid = tid;
+        pWords = new HashMap<Integer, ArrayList<Integer>>();
+        pTags = new HashMap<Integer, ArrayList<Integer>>();
+
+        l.log(Level.FINE, String.format("Reading corpus from %s", corpus));
+        words = new ArrayList<Integer>(prefix);
+        ArrayList<Integer> read = io.readCorpus(wid);
+        words.addAll(words.isEmpty() ? read : read.subList(1, read.size()));
+        l.log(Level.FINER, String.format("Word IDs: %s", wid.getHashDI()));
+        l.log(Level.FINER, String.format("Words: %s", words));
+
+        l.log(Level.FINE, String.format("Reading lexicon from %s", lexicon));
+        io.readLexicon(wid, tid, pTags, pWords);
+        l.log(Level.FINER, String.format("Tag IDs: %s", tid.getHashDI()));
+        l.log(Level.FINER, String.format("Possible words for tags: %s", pWords));
+        l.log(Level.FINER, String.format("Possible tags for word: %s", pTags));
+
+        nTags = pWords.size() + 1;
+        nWords = pTags.size() + 1;
+        l.log(Level.FINER, String.format("N(words): %d", nWords - 1));
+        l.log(Level.FINER, String.format("N(tags): %d", nTags - 1));
+
+        gtags = new ArrayList<Integer>(gPrefix);
+
+        if (gold != null) {
+            l.log(Level.FINE, String.format("Reading gold standard from %s", gold));
+            ArrayList<Integer> gRead = io.readGold(tid);
+            gtags.addAll((gtags.isEmpty() || gRead.isEmpty()) ? gRead : gRead.subList(1, gRead.size()));
+        }
+        l.log(Level.FINER, String.format("Gold tags: %s", gtags));
+
+        if (gtags.size() != words.size()) {
+            l.log(Level.WARNING, String.format("Gold standard has %d positions, corpus has %d, only the covered "
+                    + "positions are evaluated", gtags.size(), words.size()));
+        }
+    }
+
+    public ID getWid() {
+        return wid;
+    }
+
+    public ID getTid() {
+        return tid;
+    }
+
+    public ArrayList<Integer> getWords() {
+        return words;
+    }
+
+    public ArrayList<Integer> getGtags() {
+        return gtags;
+    }
+
+    public HashMap<Integer, ArrayList<Integer>> getPWords() {
+        return pWords;
+    }
+
+    public HashMap<Integer, ArrayList<Integer>> getPTags() {
+        return pTags;
+    }
+
+    public int getNTags() {
+        return nTags;
+    }
+
+    public int getNWords() {
+        return nWords;
+    }
+}
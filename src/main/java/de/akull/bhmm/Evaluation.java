@@ -0,0 +1,266 @@
+package de.akull.bhmm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Evaluation metrics of a tag sequence against the gold standard.
+ * <p/>
+ * Only reads the shared corpus structures, therefore it can be used concurrently on snapshots of the sampler state.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Evaluation {
+    private final double beta;
+    private final double row;
+    private final int nTags;
+    private final ArrayList<Integer> words;
+    private final ArrayList<Integer> gtags;
+    private final HashMap<Integer, ArrayList<Integer>> pWords;
+    private final HashMap<Integer, ArrayList<Integer>> pTags;
+    private final LogGamma lgAlpha;
+    private final LogGamma lgBeta;
+
+    /**
+     * Constructor.
+     *
+     * @param alpha Hyperparameter for transitions.
+     * @param beta  Hyperparameter for emissions.
+     * @param c     Corpus.
+     */
+    public Evaluation(double alpha, double beta, Corpus c) {
+        this.beta = beta;
+        this.nTags = c.getNTags();
+        this.row = alpha * nTags;
+        this.words = c.getWords();
+        this.gtags = c.getGtags();
+        this.pWords = c.getPWords();
+        this.pTags = c.getPTags();
+        this.lgAlpha = new LogGamma(alpha);
+        this.lgBeta = new LogGamma(beta);
+    }
+
+    /**
+     * Computes the collapsed joint likelihood of tags and words.
+     * <p/>
+     * The transitions from each tag and the emissions of each tag are Dirichlet-multinomials, so the probability only
+     * depends on the counts. Only nonzero counts and the possible words of each tag are visited, therefore the cost
+     * depends on the number of tags and the lexicon, but not on the length of the corpus. The normalizers of the rows are
+     * computed directly, their totals grow with the corpus.
+     *
+     * @param transitions Transition matrix.
+     * @param emissions   Emission matrix.
+     * @return Logarithmic likelihood.
+     */
+    public double computeLikelihood(int transitions[][], int emissions[][]) {
+        double p = 0.0;
+
+        for (int i = 0; i < nTags; i++) {
+            int sum = 0;
+
+            for (int count : transitions[i]) {
+                if (count != 0) {
+                    p += lgAlpha.get(count) - lgAlpha.get(0);
+                    sum += count;
+                }
+            }
+            p += LogGamma.lgamma(row) - LogGamma.lgamma(sum + row);
+        }
+        return p + computeEmissionLikelihood(emissions);
+    }
+
+    /**
+     * Computes the collapsed joint likelihood of tags and words of the trigram model.
+     * <p/>
+     * The transitions from each pair of tags are Dirichlet-multinomials, only the nonzero trigram counts are visited.
+     *
+     * @param trigrams  Trigram counts in any order, zeros are skipped.
+     * @param contexts  Counts of each pair of tags as context of a trigram.
+     * @param emissions Emission matrix.
+     * @return Logarithmic likelihood.
+     */
+    public double computeLikelihood(int trigrams[], int contexts[][], int emissions[][]) {
+        double p = 0.0;
+
+        for (int count : trigrams) {
+            if (count != 0) {
+                p += lgAlpha.get(count) - lgAlpha.get(0);
+            }
+        }
+        for (int i = 0; i < nTags; i++) {
+            for (int j = 0; j < nTags; j++) {
+                if (contexts[i][j] != 0) {
+                    p += LogGamma.lgamma(row) - LogGamma.lgamma(contexts[i][j] + row);
+                }
+            }
+        }
+        return p + computeEmissionLikelihood(emissions);
+    }
+
+    /**
+     * Computes the part of the collapsed joint likelihood which belongs to the emissions.
+     *
+     * @param emissions Emission matrix.
+     * @return Logarithmic likelihood.
+     */
+    private double computeEmissionLikelihood(int emissions[][]) {
+        double p = 0.0;
+
+        for (int i = 1; i < nTags; i++) {
+            ArrayList<Integer> possible = pWords.get(i);
+            int sum = 0;
+
+            for (int wordID : possible) {
+                int count = emissions[i][wordID];
+
+                if (count != 0) {
+                    p += lgBeta.get(count) - lgBeta.get(0);
+                    sum += count;
+                }
+            }
+            p += LogGamma.lgamma(beta * possible.size()) - LogGamma.lgamma(sum + beta * possible.size());
+        }
+        return p;
+    }
+
+    /**
+     * Computes accuracy of tag-ambiguous words.
+     * <p/>
+     * Only the positions covered by the gold standard are evaluated.
+     *
+     * @param tags Sequence of tag IDs.
+     * @return Accuracy.
+     */
+    public double computeAccuracy(ArrayList<Integer> tags) {
+        int correct = 0;
+        int total = 0;
+
+        for (int i = 0; i < Math.min(tags.size(), gtags.size()); i++) {
+            if (tags.get(i) != 0) {
+                if (pTags.get(words.get(i)).size() > 1) {
+                    if (tags.get(i).equals(gtags.get(i))) {
+                        correct++;
+                    }
+                    total++;
+                }
+            }
+        }
+        return (total != 0) ? (100.0 * correct / total) : Double.NaN;
+    }
+
+    /**
+     * Computes the marginal counts of a cross tab.
+     *
+     * @param cross Cross tab.
+     * @return Marginal counts of column/row.
+     */
+    private static ArrayList<int[]> computeMarginal(int cross[][]) {
+        ArrayList<int[]> m = new ArrayList<int[]>();
+        int X[] = new int[cross.length];
+        int Y[] = new int[cross.length];
+
+        for (int i = 1; i < cross.length; i++) {
+            for (int j = 1; j < cross[i].length; j++) {
+                X[j] += cross[i][j];
+                Y[i] += cross[i][j];
+            }
+        }
+        m.add(X);
+        m.add(Y);
+
+        return m;
+    }
+
+    /**
+     * Computes Entropy between clusters.
+     *
+     * @param mCounts Sequences of marginal counts
+     * @param nTokens Number of tokens.
+     * @return Entropy metric.
+     */
+    private static double computeEntropy(ArrayList<int[]> mCounts, double nTokens) {
+        double h = 0.0;
+
+        for (int[] marginal : mCounts) {
+            double hh = 0.0;
+
+            for (int count : marginal) {
+                if (count != 0) {
+                    double rCount = count / nTokens;
+
+                    hh -= rCount * Math.log(rCount) / Math.log(2);
+                }
+            }
+            h += hh;
+        }
+        return h;
+    }
+
+    /**
+     * Computes Mutual Information between two clusters.
+     *
+     * @param cross   Cross tab.
+     * @param m       Marginal counts.
+     * @param nTokens Number of tokens.
+     * @return Mutual Information metric.
+     */
+    private static double computeMI(int cross[][], ArrayList<int[]> m, double nTokens) {
+        double mi = 0.0;
+
+        for (int i = 0; i < cross.length; i++) {
+            for (int j = 0; j < cross.length; j++) {
+                double n = cross[i][j] / nTokens;
+                double xRel = m.get(0)[j] / nTokens;
+                double yRel = m.get(1)[i] / nTokens;
+
+                if (n != 0 && xRel != 0 && yRel != 0) {
+                    mi += n * Math.log(n / (xRel * yRel)) / Math.log(2);
+                }
+            }
+        }
+        return mi;
+    }
+
+    /**
+     * Computes Variation of Information based on Meila 2003/07.
+     * <p/>
+     * Only the positions covered by the gold standard are evaluated.
+     *
+     * @param tags Sequence of tag IDs.
+     * @return VI metric.
+     */
+    public double computeVI(ArrayList<Integer> tags) {
+        int cross[][] = new int[nTags][nTags];
+        double nTokens = 0.0;
+
+        for (int i = 0; i < Math.min(tags.size(), gtags.size()); i++) {
+            cross[gtags.get(i)][tags.get(i)] += 1;
+
+            if (tags.get(i) != 0) {
+                nTokens++;
+            }
+        }
+        return computeVI(cross, nTokens);
+    }
+
+    /**
+     * Computes Variation of Information of a cross tab.
+     *
+     * @param cross   Cross tab of gold tags and tags, index 0 is the boundary.
+     * @param nTokens Number of tokens.
+     * @return VI metric.
+     */
+    public static double computeVI(int cross[][], double nTokens) {
+        ArrayList<int[]> m;
+        double h;
+        double mi;
+
+        m = computeMarginal(cross);
+        h = computeEntropy(m, nTokens);
+        mi = computeMI(cross, m, nTokens);
+
+        return h - 2 * mi;
+    }
+}
@@ -0,0 +1,158 @@
+package de.akull.bhmm;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates synthetic corpora from a random HMM.
+ * <p/>
+ * Writes corpus, lexicon and gold standard in the formats read by {@link IO}, so the sampler can be run on corpora of
+ * any size. The same seed always generates the same files.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Generator {
+    private final long seed;
+    private final int nTags;
+    private final int nWords;
+    /**
+     * Cumulative transition weights, row 0 is the sentence start.
+     */
+    private final double transitions[][];
+    private final ArrayList<ArrayList<Integer>> pWords;
+    private final ArrayList<ArrayList<Integer>> pTags;
+
+    /**
+     * Constructor.
+     * <p/>
+     * Every word gets one tag, a fraction of the words gets one or two more tags.
+     *
+     * @param seed      Seed of the random HMM and the corpora.
+     * @param nTags     Number of tags.
+     * @param nWords    Number of words.
+     * @param ambiguity Fraction of words with more than one tag.
+     */
+    public Generator(long seed, int nTags, int nWords, double ambiguity) {
+        Random r = new Random(seed);
+        this.seed = seed;
+        this.nTags = nTags;
+        this.nWords = nWords;
+        transitions = new double[nTags + 1][nTags];
+        pWords = new ArrayList<ArrayList<Integer>>();
+        pTags = new ArrayList<ArrayList<Integer>>();
+
+        for (int i = 0; i <= nTags; i++) {
+            double sum = 0.0;
+
+            for (int j = 0; j < nTags; j++) {
+                sum += Math.pow(r.nextDouble(), 4);
+                transitions[i][j] = sum;
+            }
+        }
+        for (int i = 0; i < nTags; i++) {
+            pWords.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < nWords; i++) {
+            ArrayList<Integer> tags = new ArrayList<Integer>();
+            tags.add(i % nTags);
+
+            if (r.nextDouble() < ambiguity) {
+                for (int j = 1 + r.nextInt(2); j > 0; j--) {
+                    int tag = r.nextInt(nTags);
+
+                    if (!tags.contains(tag)) {
+                        tags.add(tag);
+                    }
+                }
+            }
+            for (int tag : tags) {
+                pWords.get(tag).add(i);
+            }
+            pTags.add(tags);
+        }
+    }
+
+    /**
+     * Draws an index from cumulative weights.
+     *
+     * @param r          Random.
+     * @param cumulative Cumulative weights.
+     * @return Index.
+     */
+    private int draw(Random r, double cumulative[]) {
+        double weight = r.nextDouble() * cumulative[cumulative.length - 1];
+        int i = 0;
+
+        while (i < cumulative.length - 1 && weight >= cumulative[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Generates corpus.txt, lexicon.txt and gold.txt.
+     * <p/>
+     * The sentences only depend on the seed and the number of tokens.
+     *
+     * @param dir     Output directory.
+     * @param nTokens Number of tokens.
+     */
+    public void generate(String dir, long nTokens) {
+        BufferedWriter corpus = null;
+        BufferedWriter gold = null;
+        BufferedWriter lexicon = null;
+        Random r = new Random(seed + nTokens);
+
+        try {
+            new File(dir).mkdirs();
+            corpus = new BufferedWriter(new FileWriter(new File(dir, "corpus.txt")));
+            gold = new BufferedWriter(new FileWriter(new File(dir, "gold.txt")));
+            lexicon = new BufferedWriter(new FileWriter(new File(dir, "lexicon.txt")));
+
+            for (long n = 0; n < nTokens; ) {
+                int length = (int) Math.min(5 + r.nextInt(26), nTokens - n);
+                int previous = 0;
+
+                for (int i = 0; i < length; i++) {
+                    int tag = draw(r, transitions[previous]);
+                    ArrayList<Integer> words = pWords.get(tag);
+                    int word = words.get((int) (Math.pow(r.nextDouble(), 2) * words.size()));
+                    String token = ((i == 0) ? "w" : " w") + word;
+
+                    corpus.write(token);
+                    gold.write(token + "/T" + tag);
+                    previous = tag + 1;
+                }
+                corpus.write("\n");
+                gold.write("\n");
+                n += length;
+            }
+            for (int i = 0; i < nWords; i++) {
+                StringBuilder sb = new StringBuilder(String.format("w%d -", i));
+
+                for (int tag : pTags.get(i)) {
+                    sb.append(String.format(" T%d", tag));
+                }
+                lexicon.write(sb.append("\n").toString());
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        } finally {
+            for (BufferedWriter bw : new BufferedWriter[]{corpus, gold, lexicon}) {
+                if (bw != null) {
+                    try {
+                        bw.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+}
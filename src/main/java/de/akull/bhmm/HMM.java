@@ -1,7 +1,6 @@
 package de.akull.bhmm;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Random;
 
@@ -21,11 +20,12 @@ public class HMM {
      *
      * @param words Sequence of word IDs.
      * @param pTags Mapping of words to possible tags.
+     * @param r     Random.
      * @return Sequence of tag IDs.
      */
-    public ArrayList<Integer> initializeTags(ArrayList<Integer> words, HashMap<Integer, ArrayList<Integer>> pTags) {
+    public ArrayList<Integer> initializeTags(ArrayList<Integer> words, HashMap<Integer, ArrayList<Integer>> pTags,
+                                             Random r) {
         ArrayList<Integer> tags = new ArrayList<Integer>();
-        Random r = new Random(new Date().getTime());
 
         for (int wordID : words) {
             if (wordID == 0) {
@@ -87,4 +87,70 @@ public class HMM {
         }
         return emissions;
     }
+
+    /**
+     * Extends a tag sequence with tags for newly appended words.
+     * <p/>
+     * Each new tag is drawn from the current model given its predecessor and its word, the counts are updated after
+     * each draw, so later tags see the earlier ones.
+     *
+     * @param words       Sequence of word IDs, longer than <code>tags</code>.
+     * @param tags        Sequence of tag IDs, which is extended.
+     * @param pTags       Mapping of words to possible tags.
+     * @param pWords      Mapping of tags to possible words.
+     * @param transitions Transition matrix, which is updated.
+     * @param emissions   Emission matrix, which is updated.
+     * @param alpha       Hyperparameter for transitions.
+     * @param beta        Hyperparameter for emissions.
+     * @param r           Random.
+     */
+    public void extendTags(ArrayList<Integer> words,
+                           ArrayList<Integer> tags,
+                           HashMap<Integer, ArrayList<Integer>> pTags,
+                           HashMap<Integer, ArrayList<Integer>> pWords,
+                           int transitions[][],
+                           int emissions[][],
+                           double alpha,
+                           double beta,
+                           Random r) {
+        int sums[] = new int[emissions.length];
+
+        for (int i = 0; i < emissions.length; i++) {
+            for (int count : emissions[i]) {
+                sums[i] += count;
+            }
+        }
+        for (int i = tags.size(); i < words.size(); i++) {
+            int wordID = words.get(i);
+            int previous = tags.get(i - 1);
+            int current;
+
+            if (wordID == 0) {
+                current = 0;
+            } else {
+                ArrayList<Integer> pos = pTags.get(wordID);
+                double probs[] = new double[pos.size()];
+                double total = 0.0;
+
+                for (int j = 0; j < pos.size(); j++) {
+                    int tag = pos.get(j);
+
+                    total += (transitions[previous][tag] + alpha) *
+                            (emissions[tag][wordID] + beta) / (sums[tag] + beta * pWords.get(tag).size());
+                    probs[j] = total;
+                }
+                double weight = r.nextDouble() * total;
+                int j = 0;
+
+                while (j < probs.length - 1 && weight >= probs[j]) {
+                    j++;
+                }
+                current = pos.get(j);
+            }
+            tags.add(current);
+            transitions[previous][current] += 1;
+            emissions[current][wordID] += 1;
+            sums[current] += 1;
+        }
+    }
 }
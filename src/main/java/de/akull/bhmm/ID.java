@@ -1,5 +1,6 @@
 package de.akull.bhmm;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
 /**
@@ -9,7 +10,8 @@ import java.util.HashMap;
  * @version 1.0
  * @since 19.04.13
  */
-public class ID {
+public class ID implements Serializable {
+    private static final long serialVersionUID = 1L;
     /**
      * String -> ID.
      */
@@ -56,6 +58,16 @@ public class ID {
         return id.get(element);
     }
 
+    /**
+     * Checks whether a String has an ID.
+     *
+     * @param element String.
+     * @return True if <code>element</code> has an ID.
+     */
+    public boolean contains(String element) {
+        return id.containsKey(element);
+    }
+
     /**
      * Returns ID -> String mapping.
      *
@@ -73,6 +73,44 @@ public class IO {
         return words;
     }
 
+    /**
+     * Opens the corpus for streaming.
+     *
+     * @return Reader of the corpus.
+     * @throws IOException If the corpus can't be opened.
+     */
+    public BufferedReader openCorpus() throws IOException {
+        return new BufferedReader(new FileReader(corpus));
+    }
+
+    /**
+     * Reads the next sentences of a streamed corpus.
+     * <p/>
+     * Format is the same as in {@link #readCorpus(ID)}.
+     *
+     * @param br  Reader of the corpus.
+     * @param wid Mapping String (word) -> Integer (id).
+     * @param n   Maximum number of sentences.
+     * @return Sequence of word IDs with each sentence seperated by 0-boundaries, empty at the end of the corpus.
+     * @throws IOException If the corpus can't be read.
+     */
+    public ArrayList<Integer> readSentences(BufferedReader br, ID wid, int n) throws IOException {
+        ArrayList<Integer> words = new ArrayList<Integer>();
+        String line;
+
+        for (int i = 0; i < n && (line = br.readLine()) != null; i++) {
+            words.add(0);
+
+            for (String s : line.split(" ")) {
+                words.add(wid.set(s));
+            }
+        }
+        if (!words.isEmpty()) {
+            words.add(0);
+        }
+        return words;
+    }
+
     /**
      * Reads the lexicon.
      * <p/>
@@ -96,7 +134,7 @@ public class IO {
 
             while ((line = br.readLine()) != null) {
                 String tmp[] = line.split(" - ");
-                int wordID = wid.getID(tmp[0]);
+                int wordID = wid.set(tmp[0]);
                 pTags.put(wordID, new ArrayList<Integer>());
 
                 for (String s : tmp[1].split(" ")) {
@@ -180,18 +218,78 @@ public class IO {
         BufferedWriter bw = null;
 
         try {
-            FileWriter fw = new FileWriter(out);
-            bw = new BufferedWriter(fw);
-
-            for (int i = 1; i < tags.size(); i++) {
-                if (tags.get(i) != 0) {
-                    String word = wid.getString(words.get(i));
-                    String tag = tid.getString(tags.get(i));
-                    bw.write(String.format("%s/%s ", word, tag));
-                } else {
-                    bw.write("\n");
+            bw = openOut();
+            writeSentences(bw, words, tags, wid, tid);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        } finally {
+            if (bw != null) {
+                try {
+                    bw.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
             }
+        }
+    }
+
+    /**
+     * Opens the output file for streaming.
+     *
+     * @return Writer of the output file.
+     * @throws IOException If the output file can't be opened.
+     */
+    public BufferedWriter openOut() throws IOException {
+        return new BufferedWriter(new FileWriter(out));
+    }
+
+    /**
+     * Writes the sentences of a sample to a streamed output file.
+     * <p/>
+     * Format is the same as in {@link #writeSample(ArrayList, ArrayList, ID, ID)}, samples of consecutive parts of the
+     * corpus can be written one after another.
+     *
+     * @param bw    Writer of the output file.
+     * @param words Sequence of word IDs.
+     * @param tags  Sequence of tag IDs.
+     * @param wid   Mapping String (word) -> Integer (id).
+     * @param tid   Mapping String (tag) -> Integer (id).
+     * @throws IOException If the output file can't be written.
+     */
+    public void writeSentences(BufferedWriter bw, ArrayList<Integer> words, ArrayList<Integer> tags, ID wid, ID tid)
+            throws IOException {
+        for (int i = 1; i < tags.size(); i++) {
+            if (tags.get(i) != 0) {
+                String word = wid.getString(words.get(i));
+                String tag = tid.getString(tags.get(i));
+                bw.write(String.format("%s/%s ", word, tag));
+            } else {
+                bw.write("\n");
+            }
+        }
+    }
+
+    /**
+     * Writes a table of results to file.
+     * <p/>
+     * Format is one tab separated row per line, starting with the header.
+     *
+     * @param file   Output filename.
+     * @param header Column names.
+     * @param rows   Tab separated rows.
+     */
+    public void writeTable(String file, String header, ArrayList<String> rows) {
+        BufferedWriter bw = null;
+
+        try {
+            bw = new BufferedWriter(new FileWriter(file));
+            bw.write(header);
+            bw.write("\n");
+
+            for (String row : rows) {
+                bw.write(row);
+                bw.write("\n");
+            }
         } catch (IOException ioe) {
             ioe.printStackTrace();
         } finally {
@@ -204,4 +302,83 @@ public class IO {
             }
         }
     }
+
+    /**
+     * Writes a report to file.
+     *
+     * @param file   Output filename.
+     * @param report Report.
+     */
+    public void writeReport(String file, String report) {
+        BufferedWriter bw = null;
+
+        try {
+            bw = new BufferedWriter(new FileWriter(file));
+            bw.write(report);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        } finally {
+            if (bw != null) {
+                try {
+                    bw.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the sampler state to file.
+     *
+     * @param file  State filename.
+     * @param state Sampler state.
+     */
+    public void writeState(String file, State state) {
+        ObjectOutputStream oos = null;
+
+        try {
+            oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            oos.writeObject(state);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        } finally {
+            if (oos != null) {
+                try {
+                    oos.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the sampler state from file.
+     *
+     * @param file State filename.
+     * @return Sampler state.
+     */
+    public State readState(String file) {
+        State state = null;
+        ObjectInputStream ois = null;
+
+        try {
+            ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            state = (State) ois.readObject();
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        } catch (ClassNotFoundException cnfe) {
+            cnfe.printStackTrace();
+        } finally {
+            try {
+                if (ois != null) {
+                    ois.close();
+                }
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+            }
+        }
+        return state;
+    }
 }
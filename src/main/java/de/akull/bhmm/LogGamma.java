@@ -0,0 +1,97 @@
+package de.akull.bhmm;
+
+/**
+ * Logarithm of the gamma function at <code>n + a</code> for counts <code>n</code> and a fixed hyperparameter
+ * <code>a</code>.
+ * <p/>
+ * Values are cached up to {@link #CAP}, the cache grows with the largest requested count below it and can be read
+ * concurrently. Larger counts are computed directly, so the cache doesn't grow with the length of the corpus.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class LogGamma {
+    /**
+     * Lanczos coefficients for g = 7, n = 9.
+     */
+    private static final double LANCZOS[] = {
+            0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313,
+            -176.61502916214059, 12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6,
+            1.5056327351493116e-7};
+    /**
+     * Counts from here on are not cached.
+     */
+    public static final int CAP = 1 << 16;
+    private final double a;
+    private volatile double cache[];
+
+    /**
+     * Constructor.
+     *
+     * @param a Hyperparameter.
+     */
+    public LogGamma(double a) {
+        this.a = a;
+        this.cache = new double[0];
+    }
+
+    /**
+     * Returns the cached value.
+     *
+     * @param n Count.
+     * @return Logarithm of the gamma function at <code>n + a</code>.
+     */
+    public double get(int n) {
+        double c[] = cache;
+
+        if (n >= CAP) {
+            return lgamma(n + a);
+        }
+        if (n >= c.length) {
+            c = extend(n);
+        }
+        return c[n];
+    }
+
+    /**
+     * Grows the cache to contain at least <code>n</code>.
+     *
+     * @param n Count.
+     * @return Cache.
+     */
+    private synchronized double[] extend(int n) {
+        double c[] = cache;
+
+        if (n >= c.length) {
+            double e[] = new double[Math.min(Math.max(n + 1, 2 * c.length), CAP)];
+            System.arraycopy(c, 0, e, 0, c.length);
+
+            for (int i = c.length; i < e.length; i++) {
+                e[i] = lgamma(i + a);
+            }
+            cache = c = e;
+        }
+        return c;
+    }
+
+    /**
+     * Computes the logarithm of the gamma function with the Lanczos approximation.
+     *
+     * @param x Positive argument.
+     * @return Logarithm of the gamma function at <code>x</code>.
+     */
+    public static double lgamma(double x) {
+        if (x < 0.5) {
+            return Math.log(Math.PI / Math.sin(Math.PI * x)) - lgamma(1 - x);
+        }
+        x -= 1;
+        double sum = LANCZOS[0];
+        double t = x + 7.5;
+
+        for (int i = 1; i < LANCZOS.length; i++) {
+            sum += LANCZOS[i] / (x + i);
+        }
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+    }
+}
@@ -73,7 +73,7 @@ public class Main {
     /**
      * Main method.
      *
-     * @param args Logging Level FINE, FINER or FINEST.
+     * @param args Logging Level FINE, FINER or FINEST and optionally the mode.
      */
     public static void main(String[] args) {
         FileHandler fh;
@@ -85,7 +85,8 @@ public class Main {
             p = new Properties();
             p.load(new FileInputStream("config.properties"));
 
-            Level lvl = (args.length == 1) ? Level.parse(args[0]) : Level.FINE;
+            Level lvl = (args.length >= 1) ? Level.parse(args[0]) : Level.FINE;
+            String mode = (args.length >= 2) ? args[1] : "train";
             fh = new FileHandler(p.getProperty("log"));
             fh.setFormatter(new Format());
 
@@ -94,8 +95,28 @@ public class Main {
             l.setLevel(lvl);
             l.addHandler(fh);
 
-            BHMM bhmm = new BHMM(l, p);
-            bhmm.run();
+            if (mode.equals("sweep")) {
+                Sweep sweep = new Sweep(l, p);
+                sweep.run();
+            } else if (mode.equals("benchmark")) {
+                Benchmark benchmark = new Benchmark(l, p);
+                benchmark.run();
+            } else if (mode.equals("tempering")) {
+                Tempering tempering = new Tempering(l, p);
+                tempering.run();
+            } else if (mode.equals("svi")) {
+                SVI svi = new SVI(l, p);
+                svi.run();
+            } else if (mode.equals("score")) {
+                Scorer scorer = new Scorer(l, p);
+                scorer.run();
+            } else if (mode.equals("update")) {
+                BHMM bhmm = BHMM.create(l, p);
+                bhmm.update();
+            } else {
+                BHMM bhmm = BHMM.create(l, p);
+                bhmm.run();
+            }
         } catch (IOException ioe) {
             ioe.printStackTrace();
         }
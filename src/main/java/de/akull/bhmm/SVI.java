@@ -0,0 +1,517 @@
+package de.akull.bhmm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stochastic variational inference for the bigram Bayesian HMM based on Foti et al. 2014.
+ * <p/>
+ * Instead of sampling every token in every iteration, each step reads a minibatch of sentences from the corpus, runs
+ * forward-backward constrained by the lexicon on each sentence and moves the global Dirichlet parameters of the
+ * transitions and emissions towards the estimate of the minibatch. Sentences are independent given the parameters, so
+ * no buffering between minibatches is needed. Only the lexicon and the parameters are held in memory.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class SVI {
+    private Logger l;
+    private Properties p;
+    private double alpha;
+    private double beta;
+    private int steps;
+    private int batch;
+    private double tau;
+    private double kappa;
+    private int dbg;
+    private ID wid;
+    private ID tid;
+    private int nTags;
+    /**
+     * Possible tags of each word.
+     */
+    private int possible[][];
+    /**
+     * Variational parameters of the transitions, Format is previous tag x tag.
+     */
+    private double lambdaT[][];
+    /**
+     * Variational parameters of the emissions, Format is word x possible tag.
+     */
+    private double lambdaE[][];
+    private double sT[][];
+    private double sE[][];
+
+    /**
+     * Constructor.
+     *
+     * @param l Log.
+     * @param p Config.
+     */
+    public SVI(Logger l, Properties p) {
+        this.l = l;
+        this.p = p;
+
+        alpha = Double.parseDouble(p.getProperty("alpha"));
+        beta = Double.parseDouble(p.getProperty("beta"));
+        steps = Integer.parseInt(p.getProperty("steps", "1000"));
+        batch = Integer.parseInt(p.getProperty("batch", "100"));
+        tau = Double.parseDouble(p.getProperty("tau", "1"));
+        kappa = Double.parseDouble(p.getProperty("kappa", "0.7"));
+        dbg = Integer.parseInt(p.getProperty("dbg"));
+
+        l.log(Level.FINER, String.format("Alpha: %f\tBeta: %f\tSteps: %d\tBatch: %d\tTau: %f\tKappa: %f",
+                alpha, beta, steps, batch, tau, kappa));
+    }
+
+    /**
+     * Computes the digamma function.
+     *
+     * @param x Positive argument.
+     * @return Derivative of the logarithmic gamma function at <code>x</code>.
+     */
+    private static double digamma(double x) {
+        double d = 0.0;
+
+        while (x < 6) {
+            d -= 1 / x;
+            x += 1;
+        }
+        double f = 1 / (x * x);
+
+        return d + Math.log(x) - 0.5 / x - f * (1.0 / 12 - f * (1.0 / 120 - f * (1.0 / 252 - f * (1.0 / 240 - f / 132))));
+    }
+
+    /**
+     * Initializes the variational parameters.
+     * <p/>
+     * Parameters start at the prior plus noise to break the symmetry between tags.
+     *
+     * @param pTags Possible tags for a word.
+     * @param nWords Number of words inclusive boundary.
+     */
+    private void initialize(HashMap<Integer, ArrayList<Integer>> pTags, int nWords) {
+        String seed = p.getProperty("seed");
+        Random r = (seed != null) ? new Random(Long.parseLong(seed.trim())) : new Random();
+        possible = new int[nWords][0];
+        lambdaT = new double[nTags][nTags];
+        lambdaE = new double[nWords][];
+        sT = new double[nTags][nTags];
+        sE = new double[nWords][];
+
+        for (int i = 0; i < nTags; i++) {
+            for (int j = 0; j < nTags; j++) {
+                lambdaT[i][j] = alpha + r.nextDouble();
+            }
+        }
+        for (int wordID : pTags.keySet()) {
+            ArrayList<Integer> pos = pTags.get(wordID);
+            possible[wordID] = new int[pos.size()];
+
+            for (int j = 0; j < pos.size(); j++) {
+                possible[wordID][j] = pos.get(j);
+            }
+        }
+        for (int w = 0; w < nWords; w++) {
+            lambdaE[w] = new double[possible[w].length];
+            sE[w] = new double[possible[w].length];
+
+            for (int j = 0; j < possible[w].length; j++) {
+                lambdaE[w][j] = beta + r.nextDouble();
+            }
+        }
+    }
+
+    /**
+     * Sums the emission parameters of each tag.
+     *
+     * @return Sum of each tag.
+     */
+    private double[] sumEmissions() {
+        double sums[] = new double[nTags];
+
+        for (int w = 0; w < possible.length; w++) {
+            for (int j = 0; j < possible[w].length; j++) {
+                sums[possible[w][j]] += lambdaE[w][j];
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Adds two probabilities in log space.
+     *
+     * @param a Logarithmic probability.
+     * @param b Logarithmic probability.
+     * @return Logarithm of the sum.
+     */
+    private static double logAdd(double a, double b) {
+        if (a == Double.NEGATIVE_INFINITY) {
+            return b;
+        }
+        if (b == Double.NEGATIVE_INFINITY) {
+            return a;
+        }
+        return Math.max(a, b) + Math.log1p(Math.exp(-Math.abs(a - b)));
+    }
+
+    /**
+     * Computes the logarithmic weights E[log A] and E[log B] under the variational distribution.
+     * <p/>
+     * The weights stay in log space, for small priors they are far below the smallest double.
+     *
+     * @param logA Logarithmic transition weights, which are set.
+     * @param logB Logarithmic emission weights, which are set.
+     */
+    private void expectation(double logA[][], double logB[][]) {
+        double sums[] = sumEmissions();
+
+        for (int i = 0; i < nTags; i++) {
+            double sum = 0.0;
+
+            for (int j = 0; j < nTags; j++) {
+                sum += lambdaT[i][j];
+            }
+            double dSum = digamma(sum);
+
+            for (int j = 0; j < nTags; j++) {
+                logA[i][j] = digamma(lambdaT[i][j]) - dSum;
+            }
+        }
+        for (int i = 0; i < nTags; i++) {
+            sums[i] = digamma(sums[i]);
+        }
+        for (int w = 0; w < possible.length; w++) {
+            for (int j = 0; j < possible[w].length; j++) {
+                logB[w][j] = digamma(lambdaE[w][j]) - sums[possible[w][j]];
+            }
+        }
+    }
+
+    /**
+     * Runs forward-backward in log space on a sentence and adds the expected counts to the sufficient statistics.
+     *
+     * @param words Sequence of word IDs.
+     * @param from  Position of the first word of the sentence.
+     * @param to    Position of the boundary after the sentence.
+     * @param logA  Logarithmic transition weights.
+     * @param logB  Logarithmic emission weights.
+     * @throws IllegalStateException If the sentence has no finite probability.
+     */
+    private void forwardBackward(ArrayList<Integer> words, int from, int to, double logA[][], double logB[][]) {
+        int n = to - from;
+        int w[] = new int[n];
+        double fw[][] = new double[n][];
+        double bw[][] = new double[n][];
+
+        for (int k = 0; k < n; k++) {
+            w[k] = words.get(from + k);
+            int states[] = possible[w[k]];
+            fw[k] = new double[states.length];
+
+            for (int j = 0; j < states.length; j++) {
+                double sum = Double.NEGATIVE_INFINITY;
+
+                if (k == 0) {
+                    sum = logA[0][states[j]];
+                } else {
+                    int previous[] = possible[w[k - 1]];
+
+                    for (int i = 0; i < previous.length; i++) {
+                        sum = logAdd(sum, fw[k - 1][i] + logA[previous[i]][states[j]]);
+                    }
+                }
+                fw[k][j] = sum + logB[w[k]][j];
+            }
+        }
+        int last[] = possible[w[n - 1]];
+        double z = Double.NEGATIVE_INFINITY;
+        bw[n - 1] = new double[last.length];
+
+        for (int i = 0; i < last.length; i++) {
+            bw[n - 1][i] = logA[last[i]][0];
+            z = logAdd(z, fw[n - 1][i] + bw[n - 1][i]);
+        }
+        if (Double.isNaN(z) || Double.isInfinite(z)) {
+            throw new IllegalStateException(String.format("Sentence at %d has probability %f", from, z));
+        }
+        for (int k = n - 2; k >= 0; k--) {
+            int states[] = possible[w[k]];
+            int next[] = possible[w[k + 1]];
+            bw[k] = new double[states.length];
+
+            for (int i = 0; i < states.length; i++) {
+                bw[k][i] = Double.NEGATIVE_INFINITY;
+
+                for (int j = 0; j < next.length; j++) {
+                    double xi = logA[states[i]][next[j]] + logB[w[k + 1]][j] + bw[k + 1][j];
+
+                    bw[k][i] = logAdd(bw[k][i], xi);
+                    sT[states[i]][next[j]] += Math.exp(fw[k][i] + xi - z);
+                }
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            int states[] = possible[w[k]];
+
+            for (int j = 0; j < states.length; j++) {
+                double gamma = Math.exp(fw[k][j] + bw[k][j] - z);
+
+                sE[w[k]][j] += gamma;
+
+                if (k == 0) {
+                    sT[0][states[j]] += gamma;
+                }
+                if (k == n - 1) {
+                    sT[states[j]][0] += gamma;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the variational parameters towards the estimate of the minibatch and resets the sufficient statistics.
+     *
+     * @param rho   Step size.
+     * @param scale Number of sentences in the corpus divided by the number in the minibatch.
+     */
+    private void update(double rho, double scale) {
+        for (int i = 0; i < nTags; i++) {
+            for (int j = 0; j < nTags; j++) {
+                lambdaT[i][j] = (1 - rho) * lambdaT[i][j] + rho * (alpha + scale * sT[i][j]);
+                sT[i][j] = 0.0;
+            }
+        }
+        for (int w = 0; w < possible.length; w++) {
+            for (int j = 0; j < possible[w].length; j++) {
+                lambdaE[w][j] = (1 - rho) * lambdaE[w][j] + rho * (beta + scale * sE[w][j]);
+                sE[w][j] = 0.0;
+            }
+        }
+    }
+
+    /**
+     * Finds the most probable tags of a sentence under the mean parameters with Viterbi.
+     *
+     * @param words Sequence of word IDs.
+     * @param tags  Sequence of tag IDs, which is set.
+     * @param from  Position of the first word of the sentence.
+     * @param to    Position of the boundary after the sentence.
+     * @param logA  Logarithmic transition probabilities.
+     * @param logB  Logarithmic emission probabilities.
+     */
+    private void decode(ArrayList<Integer> words, ArrayList<Integer> tags, int from, int to, double logA[][],
+                        double logB[][]) {
+        int n = to - from;
+        double delta[][] = new double[n][];
+        int back[][] = new int[n][];
+        int w[] = new int[n];
+
+        for (int k = 0; k < n; k++) {
+            w[k] = words.get(from + k);
+            int states[] = possible[w[k]];
+            delta[k] = new double[states.length];
+            back[k] = new int[states.length];
+
+            for (int j = 0; j < states.length; j++) {
+                double best = Double.NEGATIVE_INFINITY;
+
+                if (k == 0) {
+                    best = logA[0][states[j]];
+                } else {
+                    int previous[] = possible[w[k - 1]];
+
+                    for (int i = 0; i < previous.length; i++) {
+                        double d = delta[k - 1][i] + logA[previous[i]][states[j]];
+
+                        if (d > best) {
+                            best = d;
+                            back[k][j] = i;
+                        }
+                    }
+                }
+                delta[k][j] = best + logB[w[k]][j];
+            }
+        }
+        int last[] = possible[w[n - 1]];
+        double best = Double.NEGATIVE_INFINITY;
+        int j = 0;
+
+        for (int i = 0; i < last.length; i++) {
+            double d = delta[n - 1][i] + logA[last[i]][0];
+
+            if (d > best) {
+                best = d;
+                j = i;
+            }
+        }
+        for (int k = n - 1; k >= 0; k--) {
+            tags.set(from + k, possible[w[k]][j]);
+            j = back[k][j];
+        }
+    }
+
+    /**
+     * Counts the sentences of the corpus.
+     *
+     * @param io IO.
+     * @return Number of sentences.
+     * @throws IOException If the corpus can't be read.
+     */
+    private long countSentences(IO io) throws IOException {
+        BufferedReader br = io.openCorpus();
+        long n = 0;
+
+        try {
+            while (br.readLine() != null) {
+                n++;
+            }
+        } finally {
+            br.close();
+        }
+        return n;
+    }
+
+    /**
+     * Fits the variational parameters on streamed minibatches.
+     *
+     * @param io IO.
+     * @throws IOException If the corpus can't be read.
+     */
+    private void fit(IO io) throws IOException {
+        double logA[][] = new double[nTags][nTags];
+        double logB[][] = new double[possible.length][];
+        long nSentences = countSentences(io);
+        BufferedReader br = io.openCorpus();
+
+        l.log(Level.FINER, String.format("N(sentences): %d", nSentences));
+
+        for (int w = 0; w < possible.length; w++) {
+            logB[w] = new double[possible[w].length];
+        }
+        try {
+            for (int step = 0; step < steps; step++) {
+                ArrayList<Integer> words = io.readSentences(br, wid, batch);
+
+                if (words.isEmpty()) {
+                    br.close();
+                    br = io.openCorpus();
+                    words = io.readSentences(br, wid, batch);
+                }
+                expectation(logA, logB);
+                int m = 0;
+
+                for (int from = 1, to = 1; to < words.size(); to++) {
+                    if (words.get(to) == 0) {
+                        forwardBackward(words, from, to, logA, logB);
+                        from = to + 1;
+                        m++;
+                    }
+                }
+                double rho = Math.pow(tau + step, -kappa);
+                update(rho, (double) nSentences / m);
+
+                if (dbg != 0 && step % dbg == 0) {
+                    l.log(Level.FINEST, String.format("\n#%d\t%f", step + 1, rho));
+                }
+            }
+        } finally {
+            br.close();
+        }
+    }
+
+    /**
+     * Decodes the corpus in minibatches and writes it in the format of {@link IO#writeSample(ArrayList, ArrayList, ID,
+     * ID)}.
+     *
+     * @param io IO.
+     * @throws IOException If the corpus can't be read or the output file can't be written.
+     */
+    private void write(IO io) throws IOException {
+        double logA[][] = new double[nTags][nTags];
+        double logB[][] = new double[possible.length][];
+        double sums[] = sumEmissions();
+        BufferedReader br = io.openCorpus();
+        BufferedWriter bw = null;
+        ArrayList<Integer> words;
+
+        for (int i = 0; i < nTags; i++) {
+            double sum = 0.0;
+
+            for (int j = 0; j < nTags; j++) {
+                sum += lambdaT[i][j];
+            }
+            for (int j = 0; j < nTags; j++) {
+                logA[i][j] = Math.log(lambdaT[i][j] / sum);
+            }
+        }
+        for (int w = 0; w < possible.length; w++) {
+            logB[w] = new double[possible[w].length];
+
+            for (int j = 0; j < possible[w].length; j++) {
+                logB[w][j] = Math.log(lambdaE[w][j] / sums[possible[w][j]]);
+            }
+        }
+        try {
+            bw = io.openOut();
+
+            while (!(words = io.readSentences(br, wid, batch)).isEmpty()) {
+                ArrayList<Integer> tags = new ArrayList<Integer>(words.size());
+
+                for (int i = 0; i < words.size(); i++) {
+                    tags.add(0);
+                }
+                for (int from = 1, to = 1; to < words.size(); to++) {
+                    if (words.get(to) == 0) {
+                        decode(words, tags, from, to, logA, logB);
+                        from = to + 1;
+                    }
+                }
+                io.writeSentences(bw, words, tags, wid, tid);
+            }
+        } finally {
+            br.close();
+
+            if (bw != null) {
+                bw.close();
+            }
+        }
+    }
+
+    /**
+     * Coordinates method calls.
+     */
+    public void run() {
+        IO io = new IO(p.getProperty("corpus"), p.getProperty("lexicon"), p.getProperty("gold"), p.getProperty("out"));
+        HashMap<Integer, ArrayList<Integer>> pWords = new HashMap<Integer, ArrayList<Integer>>();
+        HashMap<Integer, ArrayList<Integer>> pTags = new HashMap<Integer, ArrayList<Integer>>();
+        wid = new ID();
+        tid = new ID();
+
+        l.log(Level.FINE, String.format("Reading lexicon from %s", p.getProperty("lexicon")));
+        io.readLexicon(wid, tid, pTags, pWords);
+        nTags = pWords.size() + 1;
+        l.log(Level.FINER, String.format("N(words): %d", pTags.size()));
+        l.log(Level.FINER, String.format("N(tags): %d", nTags - 1));
+
+        initialize(pTags, pTags.size() + 1);
+
+        try {
+            l.log(Level.FINE, "Starting stochastic variational inference");
+            fit(io);
+
+            l.log(Level.FINE, String.format("Writing decoded corpus to %s", p.getProperty("out")));
+            write(io);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package de.akull.bhmm;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Scores a tagged file against the gold standard without sampling.
+ * <p/>
+ * Both files are streamed in chunks of lines which are counted in parallel into contingency tables of gold tag x tag.
+ * The merged table gives accuracy on ambiguous tokens, VI, many-to-one and one-to-one accuracy. Memory depends on the
+ * number of tags and the chunk size, not on the length of the corpus.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Scorer {
+    private Logger l;
+    private Properties p;
+    private String score;
+    private String scores;
+    private int chunk;
+    private int threads;
+    private ID wid;
+    private ID tid;
+    private HashMap<Integer, ArrayList<Integer>> pTags;
+    private int nTags;
+    private int cross[][];
+    private long correct;
+    private long total;
+
+    /**
+     * Constructor.
+     *
+     * @param l Log.
+     * @param p Config.
+     */
+    public Scorer(Logger l, Properties p) {
+        this.l = l;
+        this.p = p;
+
+        score = p.getProperty("score", p.getProperty("out"));
+        scores = p.getProperty("scores", "scores.txt");
+        chunk = Integer.parseInt(p.getProperty("chunk", "10000"));
+        threads = Integer.parseInt(p.getProperty("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        l.log(Level.FINER, String.format("Score: %s\tGold: %s\tChunk: %d\tThreads: %d",
+                score, p.getProperty("gold"), chunk, threads));
+    }
+
+    /**
+     * Looks up the ID of a word or tag.
+     *
+     * @param ids     Mapping of words or tags to IDs.
+     * @param element Word or tag.
+     * @param line    Line number.
+     * @return ID.
+     * @throws IllegalArgumentException If <code>element</code> isn't in the lexicon.
+     */
+    private int lookup(ID ids, String element, int line) {
+        if (!ids.contains(element)) {
+            throw new IllegalArgumentException(String.format("Line %d: %s is not in the lexicon", line, element));
+        }
+        return ids.getID(element);
+    }
+
+    /**
+     * Returns the tag of a word/tag token.
+     *
+     * @param token Token.
+     * @param line  Line number.
+     * @return Tag ID.
+     */
+    private int tag(String token, int line) {
+        return lookup(tid, token.substring(token.lastIndexOf('/') + 1), line);
+    }
+
+    /**
+     * Counts a chunk of lines into its own contingency table and merges it.
+     *
+     * @param tagged Lines of the tagged file.
+     * @param gold   Lines of the gold standard.
+     * @param first  Line number of the first line.
+     * @throws IllegalArgumentException If a token has no tag or isn't in the lexicon.
+     */
+    private void count(ArrayList<String> tagged, ArrayList<String> gold, int first) {
+        int c[][] = new int[nTags][nTags];
+        long cCorrect = 0;
+        long cTotal = 0;
+
+        for (int k = 0; k < tagged.size(); k++) {
+            String tokens[] = tagged.get(k).trim().split(" ");
+            String gTokens[] = gold.get(k).trim().split(" ");
+            int line = first + k;
+
+            if (tokens.length != gTokens.length) {
+                l.log(Level.WARNING, String.format("Line %d: Different number of tokens", line));
+            }
+            for (int i = 0; i < Math.min(tokens.length, gTokens.length); i++) {
+                int slash = tokens[i].lastIndexOf('/');
+
+                if (slash < 0) {
+                    throw new IllegalArgumentException(String.format("Line %d: Token '%s' has no tag", line, tokens[i]));
+                }
+                int w = lookup(wid, tokens[i].substring(0, slash), line);
+                int t = tag(tokens[i], line);
+                int g = tag(gTokens[i], line);
+
+                c[g][t]++;
+
+                if (pTags.get(w).size() > 1) {
+                    if (t == g) {
+                        cCorrect++;
+                    }
+                    cTotal++;
+                }
+            }
+        }
+        synchronized (this) {
+            for (int i = 0; i < nTags; i++) {
+                for (int j = 0; j < nTags; j++) {
+                    cross[i][j] += c[i][j];
+                }
+            }
+            correct += cCorrect;
+            total += cTotal;
+        }
+    }
+
+    /**
+     * Streams both files and counts them in parallel.
+     * <p/>
+     * The queue of the executor is bounded and the reading thread counts a chunk itself if the queue is full, so at
+     * most a few chunks are held in memory. The chunks are checked as they finish, the first failure stops the
+     * remaining ones.
+     *
+     * @throws IOException          If a file can't be read.
+     * @throws ExecutionException   If a chunk can't be counted.
+     * @throws InterruptedException If interrupted while waiting for a chunk.
+     */
+    private void stream() throws IOException, ExecutionException, InterruptedException {
+        BufferedReader tagged = new BufferedReader(new FileReader(score));
+        BufferedReader gold = new BufferedReader(new FileReader(p.getProperty("gold")));
+        ThreadPoolExecutor ex = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads), new ThreadPoolExecutor.CallerRunsPolicy());
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+        boolean longer = false;
+        int first = 1;
+        String line;
+        String gLine;
+
+        try {
+            do {
+                final ArrayList<String> tLines = new ArrayList<String>();
+                final ArrayList<String> gLines = new ArrayList<String>();
+                final int from = first;
+
+                while (tLines.size() < chunk && (line = tagged.readLine()) != null) {
+                    if ((gLine = gold.readLine()) == null) {
+                        longer = true;
+                        break;
+                    }
+                    tLines.add(line);
+                    gLines.add(gLine);
+                }
+                if (tLines.isEmpty()) {
+                    break;
+                }
+                first += tLines.size();
+                futures.add(ex.submit(new Runnable() {
+                    public void run() {
+                        count(tLines, gLines, from);
+                    }
+                }));
+
+                while (!futures.isEmpty() && futures.get(0).isDone()) {
+                    futures.remove(0).get();
+                }
+            } while (!longer);
+
+            if (longer) {
+                l.log(Level.WARNING, String.format("%s is longer than the gold standard, scoring the first %d lines",
+                        score, first - 1));
+            } else if (gold.readLine() != null) {
+                l.log(Level.WARNING, String.format("%s is shorter than the gold standard, scoring the first %d lines",
+                        score, first - 1));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            tagged.close();
+            gold.close();
+            ex.shutdownNow();
+            ex.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Computes many-to-one accuracy, each tag is mapped to the gold tag it most often coincides with.
+     *
+     * @param nTokens Number of tokens.
+     * @return Accuracy.
+     */
+    private double computeManyToOne(double nTokens) {
+        long matched = 0;
+
+        for (int j = 1; j < nTags; j++) {
+            int max = 0;
+
+            for (int i = 1; i < nTags; i++) {
+                max = Math.max(max, cross[i][j]);
+            }
+            matched += max;
+        }
+        return 100 * matched / nTokens;
+    }
+
+    /**
+     * Computes one-to-one accuracy, tags are mapped to distinct gold tags maximizing the matches.
+     * <p/>
+     * The mapping is found with the Hungarian algorithm in O(nTags^3).
+     *
+     * @param nTokens Number of tokens.
+     * @return Accuracy.
+     */
+    private double computeOneToOne(double nTokens) {
+        int n = nTags - 1;
+        double u[] = new double[n + 1];
+        double v[] = new double[n + 1];
+        int row[] = new int[n + 1];
+        int way[] = new int[n + 1];
+        long matched = 0;
+
+        for (int i = 1; i <= n; i++) {
+            double minv[] = new double[n + 1];
+            boolean used[] = new boolean[n + 1];
+            int j0 = 0;
+            row[0] = i;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+
+            do {
+                int i0 = row[j0];
+                int j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                used[j0] = true;
+
+                for (int j = 1; j <= n; j++) {
+                    if (!used[j]) {
+                        double cur = -cross[i0][j] - u[i0] - v[j];
+
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= n; j++) {
+                    if (used[j]) {
+                        u[row[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (row[j0] != 0);
+
+            do {
+                int j1 = way[j0];
+                row[j0] = row[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        for (int j = 1; j <= n; j++) {
+            matched += cross[row[j]][j];
+        }
+        return 100 * matched / nTokens;
+    }
+
+    /**
+     * Coordinates method calls.
+     */
+    public void run() {
+        IO io = new IO(p.getProperty("corpus"), p.getProperty("lexicon"), p.getProperty("gold"), p.getProperty("out"));
+        HashMap<Integer, ArrayList<Integer>> pWords = new HashMap<Integer, ArrayList<Integer>>();
+        ArrayList<String> rows = new ArrayList<String>();
+        wid = new ID();
+        tid = new ID();
+        pTags = new HashMap<Integer, ArrayList<Integer>>();
+
+        l.log(Level.FINE, String.format("Reading lexicon from %s", p.getProperty("lexicon")));
+        io.readLexicon(wid, tid, pTags, pWords);
+        nTags = pWords.size() + 1;
+        cross = new int[nTags][nTags];
+
+        try {
+            l.log(Level.FINE, String.format("Scoring %s against %s", score, p.getProperty("gold")));
+            stream();
+        } catch (IOException ioe) {
+            l.log(Level.SEVERE, String.format("Scoring failed, %s is not written: %s", scores, ioe));
+            throw new IllegalStateException("Scoring failed", ioe);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            l.log(Level.SEVERE, String.format("Scoring interrupted, %s is not written", scores));
+            throw new IllegalStateException("Scoring interrupted", ie);
+        } catch (ExecutionException ee) {
+            l.log(Level.SEVERE, String.format("Scoring failed, %s is not written: %s", scores, ee.getCause()));
+            throw new IllegalStateException("Scoring failed", ee.getCause());
+        }
+        double nTokens = 0.0;
+
+        for (int i = 1; i < nTags; i++) {
+            for (int j = 1; j < nTags; j++) {
+                nTokens += cross[i][j];
+            }
+        }
+        String row = String.format(Locale.ROOT, "%s\t%d\t%f\t%f\t%f\t%f", score, (long) nTokens,
+                (total != 0) ? 100.0 * correct / total : Double.NaN,
+                Evaluation.computeVI(cross, nTokens),
+                computeManyToOne(nTokens),
+                computeOneToOne(nTokens));
+
+        l.log(Level.FINE, String.format("Scores: %s", row));
+        rows.add(row);
+        io.writeTable(scores, "File\tTokens\tAccuracy\tVI\tManyToOne\tOneToOne", rows);
+    }
+}
@@ -0,0 +1,72 @@
+package de.akull.bhmm;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Sampler state which can be saved and resumed for incremental training.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class State implements Serializable {
+    private static final long serialVersionUID = 2L;
+    private final ID wid;
+    private final ID tid;
+    private final ArrayList<Integer> words;
+    private final ArrayList<Integer> gtags;
+    private final ArrayList<Integer> tags;
+    private final int transitions[][];
+    private final int emissions[][];
+
+    /**
+     * Constructor.
+     *
+     * @param wid         Mapping String (word) -> Integer (id).
+     * @param tid         Mapping String (tag) -> Integer (id).
+     * @param words       Sequence of word IDs.
+     * @param gtags       Sequence of gold tag IDs.
+     * @param tags        Sequence of tag IDs.
+     * @param transitions Transition matrix.
+     * @param emissions   Emission matrix.
+     */
+    public State(ID wid, ID tid, ArrayList<Integer> words, ArrayList<Integer> gtags, ArrayList<Integer> tags,
+                 int transitions[][], int emissions[][]) {
+        this.wid = wid;
+        this.tid = tid;
+        this.words = words;
+        this.gtags = gtags;
+        this.tags = tags;
+        this.transitions = transitions;
+        this.emissions = emissions;
+    }
+
+    public ID getWid() {
+        return wid;
+    }
+
+    public ID getTid() {
+        return tid;
+    }
+
+    public ArrayList<Integer> getWords() {
+        return words;
+    }
+
+    public ArrayList<Integer> getGtags() {
+        return gtags;
+    }
+
+    public ArrayList<Integer> getTags() {
+        return tags;
+    }
+
+    public int[][] getTransitions() {
+        return transitions;
+    }
+
+    public int[][] getEmissions() {
+        return emissions;
+    }
+}
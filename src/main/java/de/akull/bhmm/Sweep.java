@@ -0,0 +1,147 @@
+package de.akull.bhmm;
+
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Grid search over the hyperparameters and the annealing schedule.
+ * <p/>
+ * The corpus is read once and shared, each configuration samples with its own tags and count matrices on a bounded
+ * thread pool.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Sweep {
+    /**
+     * Properties which can be given as a comma separated list via <code>sweep.&lt;name&gt;</code>.
+     */
+    private static final String KEYS[] = {"alpha", "beta", "max", "min", "decrease", "rate"};
+    private Logger l;
+    private Properties p;
+    private int threads;
+    private String results;
+
+    /**
+     * Constructor.
+     *
+     * @param l Log.
+     * @param p Config.
+     */
+    public Sweep(Logger l, Properties p) {
+        this.l = l;
+        this.p = p;
+
+        threads = Integer.parseInt(p.getProperty("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        results = p.getProperty("results", "results.txt");
+
+        l.log(Level.FINER, String.format("Threads: %d\tResults: %s", threads, results));
+    }
+
+    /**
+     * Builds the cartesian product of all swept properties.
+     * <p/>
+     * A property without a <code>sweep.</code> list keeps its value from the config.
+     *
+     * @return One config per combination, backed by the original config.
+     */
+    private ArrayList<Properties> expandGrid() {
+        ArrayList<Properties> grid = new ArrayList<Properties>();
+        grid.add(new Properties(p));
+
+        for (String key : KEYS) {
+            String values[] = p.getProperty("sweep." + key, p.getProperty(key)).split(",");
+            ArrayList<Properties> expanded = new ArrayList<Properties>();
+
+            for (Properties cp : grid) {
+                for (String value : values) {
+                    Properties np = new Properties(p);
+                    np.putAll(cp);
+                    np.setProperty(key, value.trim());
+                    expanded.add(np);
+                }
+            }
+            grid = expanded;
+        }
+        return grid;
+    }
+
+    /**
+     * Formats the swept properties of a config.
+     *
+     * @param cp Config.
+     * @return Tab separated values.
+     */
+    private String describe(Properties cp) {
+        StringBuilder sb = new StringBuilder();
+
+        for (String key : KEYS) {
+            sb.append(cp.getProperty(key)).append("\t");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Coordinates method calls.
+     */
+    public void run() {
+        l.log(Level.FINE, "Initializing structures");
+
+        IO io = new IO(p.getProperty("corpus"), p.getProperty("lexicon"), p.getProperty("gold"), p.getProperty("out"));
+        final Corpus c = new Corpus(l, p);
+        ArrayList<Properties> grid = expandGrid();
+        ArrayList<Future<String>> futures = new ArrayList<Future<String>>();
+        ArrayList<String> rows = new ArrayList<String>();
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+
+        l.log(Level.FINE, String.format("Sweeping %d configurations", grid.size()));
+
+        for (final Properties cp : grid) {
+            futures.add(ex.submit(new Callable<String>() {
+                public String call() {
+                    long start = System.currentTimeMillis();
+                    BHMM bhmm = BHMM.create(l, cp);
+                    bhmm.train(c);
+                    long time = System.currentTimeMillis() - start;
+
+                    String row = String.format("%s%f\t%f\t%f\t%d\tok", describe(cp),
+                            bhmm.computeAccuracy(),
+                            bhmm.computeVI(),
+                            bhmm.computeLikelihood(),
+                            time);
+
+                    l.log(Level.FINE, String.format("Finished %s", row));
+                    return row;
+                }
+            }));
+        }
+        ex.shutdown();
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                rows.add(futures.get(i).get());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                ex.shutdownNow();
+                break;
+            } catch (ExecutionException ee) {
+                ee.getCause().printStackTrace();
+                l.log(Level.WARNING, String.format("Configuration %s failed: %s", describe(grid.get(i)), ee.getCause()));
+                rows.add(String.format("%sNaN\tNaN\tNaN\t-1\tfailed: %s", describe(grid.get(i)), ee.getCause()));
+            }
+        }
+        if (rows.size() < grid.size()) {
+            l.log(Level.WARNING, String.format("Interrupted after %d of %d configurations", rows.size(), grid.size()));
+        }
+        io.writeTable(results, "Alpha\tBeta\tMax\tMin\tDecrease\tRate\tAccuracy\tVI\tLikelihood\tTime\tStatus", rows);
+    }
+}
@@ -0,0 +1,200 @@
+package de.akull.bhmm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parallel tempering (replica exchange) instead of a single annealed chain.
+ * <p/>
+ * Each replica samples with its own tags and count matrices at a fixed temperature of a geometric ladder between
+ * <code>tempering.min</code> and <code>tempering.max</code>. Every <code>exchange</code> iterations neighbouring
+ * temperatures propose to swap their states based on the collapsed joint likelihood. The replica at the lowest
+ * temperature is written.
+ * <p/>
+ * The likelihood differences grow with the square root of the corpus length, so neighbouring temperatures have to be
+ * closer on larger corpora. Without <code>tempering.max</code> neighbouring temperatures differ by about
+ * <code>2 / sqrt(tokens)</code>.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Tempering {
+    private Logger l;
+    private Properties p;
+    private int iter;
+    private int nReplicas;
+    private int exchange;
+    private int threads;
+    private double min;
+    private double ladder[];
+    private Random r;
+
+    /**
+     * Constructor.
+     *
+     * @param l Log.
+     * @param p Config.
+     */
+    public Tempering(Logger l, Properties p) {
+        this.l = l;
+        this.p = p;
+
+        String seed = p.getProperty("seed");
+        r = (seed != null) ? new Random(Long.parseLong(seed.trim())) : new Random();
+
+        iter = Integer.parseInt(p.getProperty("iterations"));
+        nReplicas = Integer.parseInt(p.getProperty("replicas",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        exchange = Integer.parseInt(p.getProperty("exchange", "10"));
+        threads = Math.min(nReplicas, Integer.parseInt(p.getProperty("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors()))));
+        min = Double.parseDouble(p.getProperty("tempering.min", "1"));
+
+        if (nReplicas < 1) {
+            throw new IllegalArgumentException(String.format("replicas must be at least 1, was %d", nReplicas));
+        }
+        if (exchange < 1) {
+            throw new IllegalArgumentException(String.format("exchange must be at least 1, was %d", exchange));
+        }
+        l.log(Level.FINER, String.format("Replicas: %d\tExchange: %d\tThreads: %d\tMinimum: %f",
+                nReplicas, exchange, threads, min));
+    }
+
+    /**
+     * Builds the geometric ladder of temperatures.
+     *
+     * @param nTokens Number of tokens of the corpus.
+     */
+    private void buildLadder(int nTokens) {
+        double max = Double.parseDouble(p.getProperty("tempering.max",
+                String.valueOf(min * (1 + 2 * (nReplicas - 1) / Math.sqrt(Math.max(nTokens, 1))))));
+        ladder = new double[nReplicas];
+
+        for (int i = 0; i < nReplicas; i++) {
+            ladder[i] = (nReplicas == 1) ? min : min * Math.pow(max / min, (double) i / (nReplicas - 1));
+        }
+        l.log(Level.FINER, String.format("Ladder: %s", Arrays.toString(ladder)));
+    }
+
+    /**
+     * Proposes swaps between neighbouring temperatures.
+     * <p/>
+     * Alternates between even and odd pairs. A swap of the states at temperatures <code>Ti &lt; Tj</code> is accepted
+     * with probability <code>min(1, exp((1/Ti - 1/Tj) * (Lj - Li)))</code>.
+     *
+     * @param round    Exchange round.
+     * @param order    Replica at each temperature, which is permuted.
+     * @param ll       Likelihood of each replica.
+     * @param accepted Accepted swaps of each pair.
+     */
+    private void swap(int round, int order[], double ll[], int accepted[]) {
+        for (int i = round % 2; i + 1 < nReplicas; i += 2) {
+            int a = order[i];
+            int b = order[i + 1];
+            double log = (1 / ladder[i] - 1 / ladder[i + 1]) * (ll[b] - ll[a]);
+
+            if (log >= 0 || r.nextDouble() < Math.exp(log)) {
+                order[i] = b;
+                order[i + 1] = a;
+                accepted[i]++;
+            }
+        }
+    }
+
+    /**
+     * Coordinates method calls.
+     */
+    public void run() {
+        l.log(Level.FINE, "Initializing structures");
+
+        IO io = new IO(p.getProperty("corpus"), p.getProperty("lexicon"), p.getProperty("gold"), p.getProperty("out"));
+        Corpus c = new Corpus(l, p);
+        int nTokens = 0;
+
+        for (int wordID : c.getWords()) {
+            if (wordID != 0) {
+                nTokens++;
+            }
+        }
+        buildLadder(nTokens);
+        final ArrayList<BHMM> replicas = new ArrayList<BHMM>();
+        final int order[] = new int[nReplicas];
+        double ll[] = new double[nReplicas];
+        int accepted[] = new int[nReplicas];
+        int rounds = (iter + exchange - 1) / exchange;
+        ExecutorService ex = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < nReplicas; i++) {
+            Properties np = new Properties(p);
+
+            if (p.getProperty("seed") != null) {
+                np.setProperty("seed", String.valueOf(Long.parseLong(p.getProperty("seed").trim()) + 1 + i));
+            }
+            BHMM bhmm = BHMM.create(l, np);
+            bhmm.initialize(c);
+            replicas.add(bhmm);
+            order[i] = i;
+        }
+        l.log(Level.FINE, String.format("Starting parallel tempering with %d replicas", nReplicas));
+
+        try {
+            for (int round = 0; round < rounds; round++) {
+                final int sweeps = Math.min(exchange, iter - round * exchange);
+                ArrayList<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+
+                for (int i = 0; i < nReplicas; i++) {
+                    final BHMM bhmm = replicas.get(order[i]);
+                    final double temp = ladder[i];
+
+                    tasks.add(new Callable<Double>() {
+                        public Double call() {
+                            for (int k = 0; k < sweeps; k++) {
+                                bhmm.sweep(temp);
+                            }
+                            return bhmm.computeLikelihood();
+                        }
+                    });
+                }
+                ArrayList<Future<Double>> futures = new ArrayList<Future<Double>>(ex.invokeAll(tasks));
+
+                for (int i = 0; i < nReplicas; i++) {
+                    ll[order[i]] = futures.get(i).get();
+                }
+                l.log(Level.FINEST, String.format("\n#%d\t%f", round * exchange + sweeps, ll[order[0]]));
+                swap(round, order, ll, accepted);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            l.log(Level.SEVERE, String.format("Tempering interrupted, %s is not written", p.getProperty("out")));
+            throw new IllegalStateException("Tempering interrupted", ie);
+        } catch (ExecutionException ee) {
+            l.log(Level.SEVERE, String.format("Replica failed, %s is not written: %s", p.getProperty("out"),
+                    ee.getCause()));
+            throw new IllegalStateException("Replica failed", ee.getCause());
+        } finally {
+            ex.shutdownNow();
+        }
+        for (int i = 0; i + 1 < nReplicas; i++) {
+            int proposed = (rounds - i % 2 + 1) / 2;
+
+            l.log(Level.FINER, String.format("Swaps %f <-> %f: %d of %d", ladder[i], ladder[i + 1], accepted[i],
+                    proposed));
+
+            if (proposed > 0 && accepted[i] == 0) {
+                l.log(Level.WARNING, String.format("No swaps accepted between %f and %f, lower tempering.max or add "
+                        + "replicas", ladder[i], ladder[i + 1]));
+            }
+        }
+        replicas.get(order[0]).save(io, c);
+    }
+}
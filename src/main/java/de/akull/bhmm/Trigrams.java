@@ -0,0 +1,142 @@
+package de.akull.bhmm;
+
+import java.util.Arrays;
+
+/**
+ * Counts of tag trigrams.
+ * <p/>
+ * A trigram is packed into a single int index and counted in an open addressing hash table of primitive arrays, so
+ * only the trigrams which occur take memory instead of a dense nTags^3 array. Keys stay in the table when their count
+ * drops to zero, they usually occur again during sampling.
+ *
+ * @author akullpp@gmail.com
+ * @version 1.0
+ * @since 18.10.26
+ */
+public class Trigrams {
+    private static final int EMPTY = -1;
+    /**
+     * Largest number of tags whose trigram indices fit into an int.
+     */
+    public static final int MAX_TAGS = 1290;
+    private final int nTags;
+    private int keys[];
+    private int counts[];
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param nTags Number of tags inclusive boundary, at most {@link #MAX_TAGS} so that indices fit into an int.
+     * @throws IllegalArgumentException If there are more tags.
+     */
+    public Trigrams(int nTags) {
+        this(nTags, 1024);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param nTags    Number of tags inclusive boundary.
+     * @param capacity Initial capacity, a power of two.
+     */
+    private Trigrams(int nTags, int capacity) {
+        if (nTags > MAX_TAGS) {
+            throw new IllegalArgumentException(String.format("At most %d tags are supported by the trigram model, got %d",
+                    MAX_TAGS, nTags));
+        }
+        this.nTags = nTags;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Packs a trigram into its index.
+     *
+     * @param a First tag.
+     * @param b Second tag.
+     * @param c Third tag.
+     * @return Index.
+     */
+    public int index(int a, int b, int c) {
+        return (a * nTags + b) * nTags + c;
+    }
+
+    /**
+     * Finds the slot of an index.
+     *
+     * @param index Index of the trigram.
+     * @return Slot which contains the index or the empty slot where it belongs.
+     */
+    private int slot(int index) {
+        int mask = keys.length - 1;
+        int h = index * 0x9E3779B9;
+        int i = (h ^ h >>> 16) & mask;
+
+        while (keys[i] != EMPTY && keys[i] != index) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the count of a trigram.
+     *
+     * @param index Index of the trigram.
+     * @return Count.
+     */
+    public int get(int index) {
+        return counts[slot(index)];
+    }
+
+    /**
+     * Changes the count of a trigram.
+     *
+     * @param index Index of the trigram.
+     * @param n     Change in count.
+     */
+    public void add(int index, int n) {
+        int i = slot(index);
+
+        if (keys[i] == EMPTY) {
+            if (2 * (size + 1) > keys.length) {
+                rehash();
+                i = slot(index);
+            }
+            keys[i] = index;
+            size++;
+        }
+        counts[i] += n;
+    }
+
+    /**
+     * Doubles the capacity.
+     */
+    private void rehash() {
+        int oldKeys[] = keys;
+        int oldCounts[] = counts;
+        keys = new int[2 * oldKeys.length];
+        counts = new int[2 * oldKeys.length];
+        Arrays.fill(keys, EMPTY);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the counts of all slots.
+     * <p/>
+     * Empty slots have a count of zero. The array must not be modified.
+     *
+     * @return Counts.
+     */
+    public int[] getCounts() {
+        return counts;
+    }
+}